@@ -0,0 +1,130 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Phases of generator on synthetic repository: commit walk, current branches, dto, txt/json/html.
+ * Run: mvn -Pbenchmark -DskipTests test, result in target/jmh-{version}.json
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GitLogGeneratorBenchmark {
+
+    @Param({"1000", "10000"})
+    public int commits;
+
+    @Param({"60"})
+    public int messageLength;
+
+    @Param({"100"})
+    public int refs;
+
+    /** Each N commit is merge, 0 - linear history */
+    @Param({"0", "10"})
+    public int mergeEvery;
+
+    private File folder;
+    private SyntheticRepository repository;
+    private ChangelogGenerator generator;
+    private List<CommitRecord> records;
+    private List<CommitDto> dtos;
+    private Set<String> branches;
+    private LineTemplate lineTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        folder = File.createTempFile("gitlog-benchmark", "");
+        FileUtils.forceDelete(folder);
+        repository = new SyntheticRepository(folder, commits, messageLength, refs, mergeEvery);
+
+        GitLogConfig config = new GitLogConfig();
+        config.setGitFolder(repository.getGitDir().getAbsolutePath());
+        config.setOutputFolder(new File(folder, "output").getAbsolutePath());
+        config.setFormats("txt,json,html");
+        config.setCountCommits(-1);
+        config.setTemplateLine("%ad %h %an %sWithUrl");
+        config.setBugTrackingUrl("https://jira/browse");
+        config.setGitLabUrl("https://gitlab/group/project");
+        config.setInternalTemplateOnlyTable(false);
+        generator = new ChangelogGenerator(config);
+        generator.init();
+
+        lineTemplate = LineTemplate.compile("%ad %h %an %sWithUrl");
+        records = new ArrayList<CommitRecord>();
+        Iterator<CommitRecord> logs = generator.getCommitsFromRepo(repository.getRepository(), repository.getHead());
+        while (logs.hasNext()) {
+            records.add(logs.next());
+        }
+        dtos = new ArrayList<CommitDto>();
+        for (CommitRecord record : records) {
+            dtos.add(generator.getCommitDto(record));
+        }
+        branches = generator.getCurrentBranches(repository.getRepository(), repository.getHead().getName());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        repository.close();
+        FileUtils.deleteQuietly(folder);
+    }
+
+    @Benchmark
+    public void walk(Blackhole blackhole) throws Exception {
+        Iterator<CommitRecord> logs = generator.getCommitsFromRepo(repository.getRepository(), repository.getHead());
+        while (logs.hasNext()) {
+            blackhole.consume(logs.next());
+        }
+    }
+
+    @Benchmark
+    public Set<String> currentBranches() throws Exception {
+        return generator.getCurrentBranches(repository.getRepository(), repository.getHead().getName());
+    }
+
+    @Benchmark
+    public void commitDto(Blackhole blackhole) {
+        for (CommitRecord record : records) {
+            blackhole.consume(generator.getCommitDto(record));
+        }
+    }
+
+    @Benchmark
+    public String txt() {
+        return generator.createTxt(branches, lineTemplate, dtos);
+    }
+
+    @Benchmark
+    public String json() {
+        return generator.createJson(branches, dtos);
+    }
+
+    @Benchmark
+    public String html() throws Exception {
+        return generator.createHtml(branches, dtos);
+    }
+}
@@ -0,0 +1,118 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.TreeFormatter;
+
+/**
+ * Repository with generated history for benchmarks.
+ * Commits are inserted directly as objects (one empty tree), without work tree and index
+ */
+public class SyntheticRepository {
+    private static final String[] AUTHORS = {"tsuntsov", "Piloting", "tester", "developer", "reviewer"};
+    private static final String WORDS = "fix add remove change refactor update test build release merge module";
+
+    private final Repository repository;
+    private final ObjectId head;
+
+    /**
+     * @param folder work tree, .git created inside
+     * @param commits count of commits on main line
+     * @param messageLength length of commit message
+     * @param refs count of tags, each tag on other commit
+     * @param mergeEvery each N commit is merge of side commit, 0 - linear history
+     */
+    public SyntheticRepository(File folder, int commits, int messageLength, int refs, int mergeEvery) throws Exception {
+        repository = Git.init().setDirectory(folder).call().getRepository();
+        repository.getConfig().setString("remote", "origin", "url", "https://gitlab/group/project");
+        repository.getConfig().save();
+
+        Random random = new Random(commits);
+        ObjectInserter inserter = repository.newObjectInserter();
+        ObjectId[] mainLine = new ObjectId[commits];
+        try {
+            ObjectId tree = inserter.insert(new TreeFormatter());
+            ObjectId parent = null;
+            long time = 1600000000000L;
+            for (int i = 0; i < commits; i++) {
+                time += 60000;
+                PersonIdent author = new PersonIdent(AUTHORS[i % AUTHORS.length], "mail@mail", time, 0);
+                if (parent != null && mergeEvery > 0 && i % mergeEvery == 0) {
+                    ObjectId side = insertCommit(inserter, tree, author, message(random, i, messageLength), parent);
+                    parent = insertCommit(inserter, tree, author, "Merge branch 'feature-" + i + "'", parent, side);
+                } else {
+                    ObjectId[] parents = parent == null ? new ObjectId[0] : new ObjectId[]{parent};
+                    parent = insertCommit(inserter, tree, author, message(random, i, messageLength), parents);
+                }
+                mainLine[i] = parent;
+            }
+            inserter.flush();
+            head = parent;
+        } finally {
+            inserter.release();
+        }
+
+        updateRef(Constants.R_HEADS + "master", head);
+        updateRef(Constants.R_REMOTES + "origin/master", head);
+        for (int i = 0; i < refs && i < commits; i++) {
+            updateRef(Constants.R_TAGS + "v" + i, mainLine[(int) ((long) i * commits / refs)]);
+        }
+        // detached HEAD, current branches are searched in refs
+        RefUpdate update = repository.updateRef(Constants.HEAD, true);
+        update.setNewObjectId(head);
+        update.forceUpdate();
+    }
+
+    public Repository getRepository() {
+        return repository;
+    }
+
+    public ObjectId getHead() {
+        return head;
+    }
+
+    public File getGitDir() {
+        return repository.getDirectory();
+    }
+
+    public void close() {
+        repository.close();
+    }
+
+    private static ObjectId insertCommit(ObjectInserter inserter, ObjectId tree, PersonIdent author, String message,
+                                         ObjectId... parents) throws IOException {
+        CommitBuilder commit = new CommitBuilder();
+        commit.setTreeId(tree);
+        commit.setParentIds(parents);
+        commit.setAuthor(author);
+        commit.setCommitter(author);
+        commit.setMessage(message);
+        return inserter.insert(commit);
+    }
+
+    /** Message "JIRA-n" and random words up to length */
+    private static String message(Random random, int index, int length) {
+        String[] words = WORDS.split(" ");
+        StringBuilder message = new StringBuilder("JIRA-").append(index);
+        while (message.length() < length) {
+            message.append(' ').append(words[random.nextInt(words.length)]);
+        }
+        return message.toString();
+    }
+
+    private void updateRef(String name, ObjectId id) throws IOException {
+        RefUpdate update = repository.updateRef(name);
+        update.setNewObjectId(id);
+        update.forceUpdate();
+    }
+}
@@ -0,0 +1,135 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Bloom filter of changed paths (files and their folders) for each commit, compared with first parent.
+ * Filter answers "path not changed" exactly and "path changed" with small false positive rate.
+ * Stored in one append-only file of records (id, length, filter bytes), shared by all modules of build
+ * (one instance per file in JVM, recently opened files) and by next builds: each commit is compared with parent only once
+ */
+public class ChangedPathCache extends CommitRecordFile<byte[]> {
+    /** Commit with more changed paths has empty filter: any path may be changed */
+    static final int MAX_PATHS = 512;
+    private static final int BITS_PER_PATH = 10;
+    private static final int HASHES = 7;
+    private static final Map<String, ChangedPathCache> CACHES = openFiles();
+
+    private ChangedPathCache(File file) {
+        super(file);
+    }
+
+    /** Cache of this changelog only, not stored in file */
+    public static ChangedPathCache inMemory() {
+        return new ChangedPathCache(null);
+    }
+
+    /** Cache of file, records added by other processes are read */
+    public static synchronized ChangedPathCache open(File file) throws IOException {
+        String key = file.getCanonicalPath();
+        ChangedPathCache cache = CACHES.get(key);
+        if (cache == null) {
+            cache = new ChangedPathCache(file);
+            CACHES.put(key, cache);
+        }
+        cache.readTail();
+        return cache;
+    }
+
+    /** Filter of commit, null if not computed, empty array - any path may be changed */
+    @Override
+    public byte[] get(ObjectId commit) {
+        return super.get(commit);
+    }
+
+    /** Add filter of commit by changed file paths (null - too many paths), written to file later */
+    public byte[] put(ObjectId commit, Collection<String> changedPaths) throws IOException {
+        byte[] filter = createFilter(changedPaths);
+        add(commit, filter);
+        return filter;
+    }
+
+    /** Path (file or folder) may be changed in commit */
+    public static boolean mightContain(byte[] filter, String path) {
+        if (filter.length == 0) {
+            return true;
+        }
+        int bits = filter.length * 8;
+        int h1 = path.hashCode();
+        int h2 = secondHash(path);
+        for (int i = 0; i < HASHES; i++) {
+            int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bits;
+            if ((filter[bit >> 3] & (1 << (bit & 7))) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void writeValue(DataOutputStream out, byte[] filter) throws IOException {
+        out.writeShort(filter.length);
+        out.write(filter);
+    }
+
+    @Override
+    protected byte[] readValue(ByteBuffer buffer) {
+        if (buffer.remaining() < 2) {
+            return null;
+        }
+        int filterLength = buffer.getShort() & 0xffff;
+        if (buffer.remaining() < filterLength) {
+            return null;
+        }
+        byte[] filter = new byte[filterLength];
+        buffer.get(filter);
+        return filter;
+    }
+
+    /** Filter by paths and all their folders */
+    private static byte[] createFilter(Collection<String> changedPaths) {
+        if (changedPaths == null || changedPaths.size() > MAX_PATHS) {
+            return new byte[0];
+        }
+        Set<String> paths = new HashSet<String>();
+        for (String path : changedPaths) {
+            paths.add(path);
+            for (int slash = path.lastIndexOf('/'); slash > 0; slash = path.lastIndexOf('/', slash - 1)) {
+                if (!paths.add(path.substring(0, slash))) {
+                    break;
+                }
+            }
+        }
+        int bytes = Math.max(8, (paths.size() * BITS_PER_PATH + 7) / 8);
+        byte[] filter = new byte[bytes];
+        int bits = bytes * 8;
+        for (String path : paths) {
+            int h1 = path.hashCode();
+            int h2 = secondHash(path);
+            for (int i = 0; i < HASHES; i++) {
+                int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bits;
+                filter[bit >> 3] |= 1 << (bit & 7);
+            }
+        }
+        return filter;
+    }
+
+    /** FNV-1a of chars, independent of String.hashCode */
+    private static int secondHash(String path) {
+        int hash = 0x811c9dc5;
+        for (int i = 0; i < path.length(); i++) {
+            hash ^= path.charAt(i);
+            hash *= 0x01000193;
+        }
+        return hash | 1;
+    }
+}
@@ -0,0 +1,120 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+/**
+ * Commits changing one of paths (as "git log -- paths": merge is included only if it differs from all parents,
+ * with first parent - if it differs from the first parent, side branch is not walked).
+ * Changed path bloom filter from cache rejects most commits without tree diff,
+ * other commits are checked by diff limited to paths
+ */
+public class ChangedPathFilter extends RevFilter {
+    private final ChangedPathCache cache;
+    /** Paths relative to work tree, separator "/" */
+    private final List<String> paths;
+    private final TreeFilter pathDiff;
+    private final boolean firstParent;
+
+    public ChangedPathFilter(ChangedPathCache cache, List<String> paths) {
+        this(cache, paths, false);
+    }
+
+    public ChangedPathFilter(ChangedPathCache cache, List<String> paths, boolean firstParent) {
+        this.cache = cache;
+        this.paths = paths;
+        this.firstParent = firstParent;
+        this.pathDiff = AndTreeFilter.create(PathFilterGroup.createFromStrings(paths), TreeFilter.ANY_DIFF);
+    }
+
+    @Override
+    public boolean include(RevWalk walker, RevCommit commit) throws IOException {
+        byte[] filter = cache.get(commit);
+        if (filter == null) {
+            filter = cache.put(commit, getChangedPaths(walker, commit));
+        }
+        boolean mightChange = false;
+        for (String path : paths) {
+            if (ChangedPathCache.mightContain(filter, path)) {
+                mightChange = true;
+                break;
+            }
+        }
+        if (!mightChange) {
+            return false;
+        }
+
+        // diff with each parent, false positive of bloom filter is rejected here
+        ObjectReader reader = walker.getObjectReader();
+        if (commit.getParentCount() == 0) {
+            return isChanged(reader, commit, null, pathDiff);
+        }
+        int parents = firstParent ? 1 : commit.getParentCount();
+        for (int i = 0; i < parents; i++) {
+            RevCommit parent = commit.getParent(i);
+            walker.parseHeaders(parent);
+            if (!isChanged(reader, commit, parent, pathDiff)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public RevFilter clone() {
+        return this;
+    }
+
+    @Override
+    public boolean requiresCommitBody() {
+        return false;
+    }
+
+    /** Changed files compared with first parent, null if more than limit of cache */
+    private List<String> getChangedPaths(RevWalk walker, RevCommit commit) throws IOException {
+        RevCommit parent = null;
+        if (commit.getParentCount() > 0) {
+            parent = commit.getParent(0);
+            walker.parseHeaders(parent);
+        }
+        // tree walk is not released: reader belongs to commit walk
+        TreeWalk treeWalk = createTreeWalk(walker.getObjectReader(), commit, parent, TreeFilter.ANY_DIFF);
+        List<String> changed = new ArrayList<String>();
+        while (treeWalk.next()) {
+            changed.add(treeWalk.getPathString());
+            if (changed.size() > ChangedPathCache.MAX_PATHS) {
+                return null;
+            }
+        }
+        return changed;
+    }
+
+    private static boolean isChanged(ObjectReader reader, RevCommit commit, RevCommit parent, TreeFilter filter) throws IOException {
+        return createTreeWalk(reader, commit, parent, filter).next();
+    }
+
+    /** Recursive walk of parent tree (empty for root commit) and commit tree */
+    private static TreeWalk createTreeWalk(ObjectReader reader, RevCommit commit, RevCommit parent, TreeFilter filter) throws IOException {
+        TreeWalk treeWalk = new TreeWalk(reader);
+        treeWalk.setRecursive(true);
+        treeWalk.setFilter(filter);
+        if (parent == null) {
+            treeWalk.addTree(new EmptyTreeIterator());
+        } else {
+            treeWalk.addTree(parent.getTree());
+        }
+        treeWalk.addTree(commit.getTree());
+        return treeWalk;
+    }
+}
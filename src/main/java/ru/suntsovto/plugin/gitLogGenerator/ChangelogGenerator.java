@@ -0,0 +1,1251 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.lang.time.FastDateFormat;
+import lombok.Getter;
+import lombok.Setter;
+import org.apache.velocity.Template;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.LogCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.AndRevFilter;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.submodule.SubmoduleWalk;
+
+/**
+ * Changelog of git repository by config: commit walk, dto and output files, without maven.
+ * Used by maven plugin (GitLogGenerator) and command line (GitLogCli).
+ * Parameters for maven environment (git.branch, git.commit.hash, git.commit.date, metrics) are in "properties"
+ */
+public class ChangelogGenerator {
+    /** Date of commit, thread safe */
+    private static final FastDateFormat DATE_FORMAT = FastDateFormat.getInstance("yyyy-MM-dd HH:mm:ss", TimeZone.getTimeZone("Etc/GMT"));
+
+    /** Commits waiting for each output file, when several formats written in parallel */
+    private static final int FAN_OUT_QUEUE_SIZE = 1024;
+    /** Commits in one task of parallel conversion to dto */
+    private static final int DTO_BATCH_SIZE = 256;
+    /** Repository path of superproject commits when submodules are aggregated */
+    private static final String SUPERPROJECT = ".";
+    /** Version of output files in fingerprint: changed with output of the same params (escaping, templates, fields) */
+    static final String OUTPUT_VERSION = "2";
+
+    private final GitLogConfig config;
+
+    /** Module folder: start of git folder search and module path filter, null - current folder */
+    @Setter
+    private File basedir;
+
+    /** Build session, scope of walk results shared by modules, null - not shared */
+    @Setter
+    private Object session;
+
+    /** Module name in metrics report */
+    @Setter
+    private String projectId = "gitlog";
+
+    /** Parameters for maven environment: git.* and metrics */
+    @Getter
+    private final Map<String, String> properties = new LinkedHashMap<String, String>();
+
+    /** Null if issue links are not created (no regexp or bug tracking url) */
+    private IssueLinker issueLinker;
+    /** Git folder from param or found near project */
+    private String resolvedGitFolder;
+    /** Url git lab from param or from origin of repo */
+    private String resolvedGitLabUrl;
+    /** Threads rendering html pages, null if html is not paged */
+    private ExecutorService htmlExecutor;
+    /** Parameters saved with fingerprint, added again when output files are not changed */
+    private final Map<String, String> environment = new LinkedHashMap<String, String>();
+    /** Tokens used in output files, other fields of CommitDto are not filled */
+    private Set<Token> usedTokens;
+    private LineTemplate lineTemplate;
+    /** Commit where walk stops (sinceRef or latest tag), null - only countCommits */
+    private ObjectId resolvedSince;
+    /** Paths for filter of commits, null - all commits */
+    private List<String> resolvedPaths;
+    /** Changed paths of commits, used with resolvedPaths */
+    private ChangedPathCache pathCache;
+    /** Time and counters of phases for build log */
+    private final PhaseMetrics metrics = new PhaseMetrics();
+    /** Conversion of commit to dto without diff, measured in each thread of dto */
+    private final PhaseMetrics.ThreadPhase dtoPhase = metrics.threadPhase("dto");
+    /** Diff of commit, part of dto conversion */
+    private final PhaseMetrics.ThreadPhase diffPhase = metrics.threadPhase("diff");
+    /** Opened submodules, null if submodules are not aggregated */
+    private List<Submodule> submodules;
+    /** Superproject and submodules for json, null if submodules are not aggregated */
+    private List<RepositoryDto> repositories;
+    /** Peeled commit -> tag names, null if not grouped by release */
+    private Map<ObjectId, List<String>> releaseTags;
+    /** Release sections for json and html, null if not grouped by release */
+    private List<ReleaseDto> releases;
+    /** Count of html pages written, 0 if html is not paged */
+    private volatile int htmlPages;
+    /** Submodule path -> url git lab of submodule origin */
+    private final Map<String, String> submoduleUrls = new HashMap<String, String>();
+    /** Repository path ("." - superproject) -> diff stat, empty if diff stat tokens are not used */
+    private final Map<String, DiffStatCalculator> diffStats = new HashMap<String, DiffStatCalculator>();
+
+    public ChangelogGenerator(GitLogConfig config) {
+        this.config = config;
+    }
+
+    /** Compile templates and issue regexp, find git folder. Called by generate, protected for benchmarks */
+    protected void init() {
+        if (StringUtils.isNotEmpty(config.getRegExpIssueNumber()) && StringUtils.isNotEmpty(config.getBugTrackingUrl())){
+            try {
+                issueLinker = new IssueLinker(Pattern.compile(config.getRegExpIssueNumber()), config.getBugTrackingUrl());
+            } catch (IllegalArgumentException e) {
+                error("Error create jira url: " + e.getMessage());
+            }
+        }
+        validateConfig();
+
+        lineTemplate = LineTemplate.compile(config.getTemplateLine());
+        usedTokens = getUsedTokens();
+        trace("used tokens: " + usedTokens);
+    }
+
+    /** Find commit fields used in output files by all formats */
+    private Set<Token> getUsedTokens() {
+        Set<Token> tokens = EnumSet.noneOf(Token.class);
+        for (String format : config.getFormats().split(",")) {
+            if (FormatEnum.JSON.is(format) || FormatEnum.NDJSON.is(format)){
+                // json contains all fields
+                tokens.addAll(getAllTokens());
+            } else if (FormatEnum.HTML.is(format)){
+                String template = getHtmlTemplateText();
+                if (template == null){
+                    tokens.addAll(getAllTokens());
+                } else {
+                    tokens.addAll(Token.usedInVelocity(template));
+                }
+                if (config.getHtmlPageSize() > 0){
+                    // dates of pages in index page
+                    tokens.add(Token.ad);
+                }
+            } else {
+                tokens.addAll(lineTemplate.getTokens());
+            }
+        }
+        if (config.isGroupByRelease()){
+            // release headers of txt file
+            tokens.add(Token.release);
+        }
+        return tokens;
+    }
+
+    /** All fields of commit, diff stat only with param diffStatInJson */
+    private Set<Token> getAllTokens() {
+        Set<Token> tokens = EnumSet.allOf(Token.class);
+        if (!config.isDiffStatInJson()){
+            tokens.removeAll(Token.DIFF_STAT);
+        }
+        return tokens;
+    }
+
+    /** Text of html template (internal or user), null if not readable */
+    private String getHtmlTemplateText() {
+        try {
+            if (config.isUseInternalTemplate()){
+                InputStream resourceAsStream = Thread.currentThread().getContextClassLoader().getResourceAsStream(getInternalTemplateName());
+                return resourceAsStream == null ? null : IOUtils.toString(resourceAsStream, "utf-8");
+            }
+            return FileUtils.readFileToString(new File(config.getTemplateFile()), "utf-8");
+        } catch (IOException e) {
+            trace("html template not read: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private String getInternalTemplateName() {
+        return config.isInternalTemplateOnlyTable() ? "templateHtmlTable.vm" : "templateHtml.vm";
+    }
+
+    private void validateConfig() {
+        // init git folder
+        resolvedGitFolder = config.getGitFolder();
+        if (StringUtils.isEmpty(resolvedGitFolder)) {
+            // from module folder, not from current folder of process (the same for all modules in daemon)
+            File start = basedir != null ? basedir : new File(".").getAbsoluteFile();
+            File gitDir = RepositoryPool.findGitDir(start);
+            resolvedGitFolder = gitDir == null ? null : gitDir.getPath();
+            trace("found git folder: " + resolvedGitFolder);
+        }
+        if (resolvedGitFolder == null){
+            throw new IllegalArgumentException("git folder not found");
+        }
+    }
+
+    /** Url git lab from param or from origin of repo */
+    private String resolveGitLabUrl(Repository repo) {
+        if (StringUtils.isNotEmpty(config.getGitLabUrl())){
+            return config.getGitLabUrl();
+        }
+        String urlFromRepo = repo.getConfig().getString("remote", "origin", "url");
+        trace("origin: " + urlFromRepo);
+        return urlFromRepo + "/commit/";
+    }
+    
+    /** Write output files, errors by param "silent" */
+    public void generate() {
+        PhaseMetrics.Phase total = metrics.start("total");
+        try {
+            PhaseMetrics.Phase phase = metrics.start("config");
+            init();
+            phase.stop();
+
+            // main repo for extract info, opened once for modules and builds of JVM
+            phase = metrics.start("open");
+            Repository repo = RepositoryPool.acquire(new File(resolvedGitFolder));
+            phase.stop();
+            try {
+                execute(repo);
+            } finally {
+                closeSubmodules();
+                RepositoryPool.release(repo, config.getRepositoryIdleTimeout() * 1000L);
+            }
+        } catch (Exception e) {
+            error("Error get commits: " + e.getMessage());
+        } finally {
+            total.stop();
+            publishMetrics();
+        }
+    }
+
+    /** Time of phases for log */
+    public String getMetricsSummary() {
+        return metrics.getSummary();
+    }
+
+    /** Metrics to properties and report file */
+    private void publishMetrics() {
+        properties.putAll(metrics.getProperties());
+        if (StringUtils.isNotEmpty(config.getMetricsReport())){
+            try {
+                metrics.writeJson(projectId, new File(config.getMetricsReport()));
+            } catch (IOException e) {
+                error("Metrics report not written: " + e.getMessage());
+            }
+        }
+    }
+
+    private void execute(Repository repo) throws Exception {
+        resolvedGitLabUrl = resolveGitLabUrl(repo);
+
+        // this hash (checkout by commit) or branch name (checkout branch)
+        String fullBranch = repo.getFullBranch();
+        ObjectId head = repo.resolve(fullBranch);
+        if (head == null && !ObjectId.isId(fullBranch)){
+            // branch of linked worktree
+            head = RefIndex.resolve(repo.getDirectory(), fullBranch);
+        }
+
+        // extract cut branch name from FullBranch
+        PhaseMetrics.Phase phase = metrics.start("refs");
+        Set<String> currentBranches = getCurrentBranches(repo, fullBranch);
+        phase.stop();
+        // add to maven environment parameter
+        addPropertyEnv("git.branch", currentBranches.toString());
+
+        // commits from untilRef (default HEAD) down to sinceRef or latest tag
+        phase = metrics.start("range");
+        ObjectId from = StringUtils.isNotEmpty(config.getUntilRef()) ? resolveCommit(repo, config.getUntilRef()) : head;
+        if (config.isGroupByRelease()){
+            releaseTags = loadPeeledTags(repo);
+        }
+        resolvedSince = resolveSince(repo, from);
+        resolvedPaths = resolvePaths(repo);
+        phase.stop();
+        if (config.isGroupByRelease()){
+            warnNotUsedWithReleases();
+        } else if (config.isIncludeSubmodules()){
+            phase = metrics.start("submodules");
+            openSubmodules(repo, from, currentBranches);
+            phase.stop();
+        }
+
+        // skip walk if HEAD, branches and params are the same as for existing files
+        Fingerprint fingerprint = null;
+        String fingerprintValue = null;
+        if (config.isSkipUnchanged() && StringUtils.isNotEmpty(config.getCacheFolder())){
+            phase = metrics.start("fingerprint");
+            fingerprint = Fingerprint.forOutput(new File(config.getCacheFolder()), new File(config.getOutputFolder()), config.getOutputFileName());
+            fingerprintValue = Fingerprint.hash(getFingerprintSource(from, currentBranches));
+            Properties savedEnvironment = fingerprint.read(fingerprintValue);
+            phase.stop();
+            if (savedEnvironment != null && isOutputFilesExist(fingerprint.getPages())){
+                metrics.count("skipped", 1);
+                trace("Output files not changed, fingerprint: " + fingerprintValue);
+                for (String name : savedEnvironment.stringPropertyNames()) {
+                    addPropertyEnv(name, savedEnvironment.getProperty(name));
+                }
+                return;
+            }
+            fingerprint.delete();
+        }
+
+        // get commit list
+        Iterator<CommitRecord> logs;
+        if (config.isGroupByRelease()){
+            phase = metrics.start("walk");
+            logs = getCommitsByRelease(repo, from);
+            phase.stop();
+        } else if (submodules != null){
+            // each module of build has own superproject walk, submodules are walked once per module
+            phase = metrics.start("walk");
+            logs = getCommitsWithSubmodules(repo, from);
+            phase.stop();
+        } else if (config.isShareWalkResults() && session != null){
+            // the same walk for all modules of build
+            phase = metrics.start("walk");
+            logs = getSharedWalk(repo, from).iterator();
+            phase.stop();
+        } else {
+            // commits are read while output file is written
+            logs = metrics.timed("walk", getCommitsFromRepo(repo, from));
+        }
+
+        // commit info to dto, converted while output file is written
+        int threads = config.getDtoThreads() > 0 ? config.getDtoThreads() : Runtime.getRuntime().availableProcessors();
+        if (!Collections.disjoint(usedTokens, Token.DIFF_STAT)){
+            createDiffStatCalculators(repo);
+            // diff is the most expensive part of dto, diffs of commits are computed by dto workers
+            threads = Math.max(threads, config.getDiffThreads() > 0 ? config.getDiffThreads() : Runtime.getRuntime().availableProcessors());
+        }
+        ExecutorService dtoExecutor = threads > 1 ? ParallelMapIterator.newExecutor(threads) : null;
+        try {
+            writeOutputFiles(createCommitDtoIterator(logs, dtoExecutor, threads), currentBranches);
+            metrics.count("commits", dtoPhase.getCalls());
+            if (pathCache != null){
+                pathCache.flush();
+            }
+        } finally {
+            if (dtoExecutor != null){
+                dtoExecutor.shutdownNow();
+            }
+            for (DiffStatCalculator calculator : diffStats.values()) {
+                calculator.release();
+            }
+            if (htmlExecutor != null){
+                htmlExecutor.shutdownNow();
+            }
+        }
+
+        if (fingerprint != null){
+            fingerprint.write(fingerprintValue, environment, htmlPages);
+        }
+    }
+
+    /** Output file for each format by one pass of commits */
+    private void writeOutputFiles(Iterator<CommitDto> commits, Set<String> currentBranches) throws Exception {
+        Map<String, CommitRenderer> renderers = new LinkedHashMap<String, CommitRenderer>();
+        for (String format : config.getFormats().split(",")) {
+            CommitRenderer renderer = createRenderer(format);
+            if (renderer != null){
+                renderers.put(format, renderer);
+            }
+        }
+
+        if (renderers.isEmpty()){
+            // no output file, only maven environment parameters by head commit (of superproject if submodules are aggregated)
+            while (commits.hasNext() && !environment.containsKey("git.commit.hash")){
+                commits.next();
+            }
+        } else if (renderers.size() == 1){
+            Map.Entry<String, CommitRenderer> entry = renderers.entrySet().iterator().next();
+            commitLinesToFile(entry.getValue(), currentBranches, new CommitStream(commits), getOutputFile(entry.getKey()));
+        } else {
+            // several files from one walk, each file in own thread
+            List<CommitFanOut.CommitSink> sinks = new ArrayList<CommitFanOut.CommitSink>();
+            for (Map.Entry<String, CommitRenderer> entry : renderers.entrySet()) {
+                sinks.add(createFileSink(entry.getValue(), currentBranches, getOutputFile(entry.getKey())));
+            }
+            new CommitFanOut(FAN_OUT_QUEUE_SIZE).run(commits, sinks);
+        }
+    }
+
+    /** HEAD, branches and all params used for output files */
+    private List<String> getFingerprintSource(ObjectId head, Set<String> currentBranches) {
+        List<String> values = new ArrayList<String>();
+        values.add(OUTPUT_VERSION);
+        values.add(head == null ? null : head.getName());
+        values.add(currentBranches.toString());
+        values.add(config.getOutputFolder());
+        values.add(config.getOutputFileName());
+        values.add(config.getFormats());
+        values.add(String.valueOf(config.getCountCommits()));
+        values.add(String.valueOf(config.isUseCommitIndex()));
+        values.add(config.getSinceRef() + " " + config.getUntilRef() + " " + config.isSinceLatestTag());
+        values.add(config.isFirstParent() + " " + config.isNoMerges());
+        values.add(resolvedSince == null ? null : resolvedSince.getName());
+        values.add(String.valueOf(resolvedPaths));
+        values.add(config.getTemplateLine());
+        values.add(String.valueOf(config.isPrettyJson()));
+        values.add(config.isIncludeSubmodules() + " " + config.getSubmoduleOrder());
+        values.add(config.isDiffStatInJson() + " " + config.isDetectRenames() + " " + config.getMaxDiffBlobSize());
+        values.add(String.valueOf(config.isGroupByRelease()));
+        if (releaseTags != null){
+            // new tag on old commit changes release of commits
+            List<String> tags = new ArrayList<String>();
+            for (Map.Entry<ObjectId, List<String>> entry : releaseTags.entrySet()) {
+                tags.add(entry.getKey().getName() + " " + entry.getValue());
+            }
+            Collections.sort(tags);
+            values.addAll(tags);
+        }
+        if (repositories != null){
+            for (RepositoryDto repository : repositories) {
+                values.add(repository.getPath() + " " + repository.getHead() + " " + repository.getBranches());
+            }
+        }
+        values.add(resolvedGitLabUrl);
+        values.add(config.getBugTrackingUrl());
+        values.add(config.getRegExpIssueNumber());
+        values.add(config.isUseInternalTemplate() + " " + config.isInternalTemplateOnlyTable() + " " + config.getTemplateFile() + " " + config.getHtmlPageSize());
+        if (config.getFormats().toUpperCase().contains(FormatEnum.HTML.name())){
+            values.add(getHtmlTemplateText());
+        }
+        return values;
+    }
+
+    /** Output files and pages of paged html (count of previous build) exist */
+    private boolean isOutputFilesExist(int pages) {
+        for (String format : config.getFormats().split(",")) {
+            if (!getOutputFile(format).isFile()){
+                return false;
+            }
+            if (config.getHtmlPageSize() > 0 && FormatEnum.HTML.is(format)){
+                if (pages == 0){
+                    return false;
+                }
+                for (int page = 1; page <= pages; page++) {
+                    if (!getPageFile(format.trim(), page).isFile()){
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private CommitFanOut.CommitSink createFileSink(final CommitRenderer renderer, final Set<String> currentBranches, final File file) {
+        return new CommitFanOut.CommitSink() {
+        @Override
+        public void consume(CommitStream commits) throws Exception {
+            commitLinesToFile(renderer, currentBranches, commits, file);
+        }
+        };
+    }
+
+    /** Render commits directly to file */
+    private void commitLinesToFile(CommitRenderer renderer, Set<String> currentBranches, CommitStream commits, File file) throws Exception {
+        trace("git log write to file " + file.getAbsolutePath());
+        // format with .gz suffix
+        String extension = file.getName().substring(config.getOutputFileName().length() + 1);
+        File tempFile = new File(file.getPath() + ".tmp");
+        // with one output file render time includes commit walk
+        PhaseMetrics.Phase phase = metrics.start("render." + extension);
+        Writer writer = openWriter(tempFile, extension);
+        boolean created = false;
+        try {
+            renderer.render(currentBranches, commits, writer);
+            created = true;
+        } finally {
+            IOUtils.closeQuietly(writer);
+            if (!created){
+                FileUtils.deleteQuietly(tempFile);
+            }
+            phase.stop();
+        }
+        metrics.count("bytes." + extension, tempFile.length());
+        phase = metrics.start("write." + extension);
+        replaceIfChanged(tempFile, file);
+        phase.stop();
+    }
+
+    /** Buffered utf-8 writer to file, gzip for extension with .gz */
+    private static Writer openWriter(File file, String extension) throws IOException {
+        if (FormatEnum.isGzip(extension)){
+            // gzip header without time: the same content gives the same file
+            return new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(FileUtils.openOutputStream(file), 64 * 1024), "utf-8"));
+        }
+        return new BufferedWriter(Channels.newWriter(FileUtils.openOutputStream(file).getChannel(), "utf-8"));
+    }
+
+    /** Output file replaced by new file only if content changed, so file time is changed only with content */
+    private void replaceIfChanged(File tempFile, File file) throws IOException {
+        if (file.isFile() && FileUtils.contentEquals(tempFile, file)){
+            FileUtils.deleteQuietly(tempFile);
+            trace("Output file not changed");
+            return;
+        }
+        // rename does not replace existing file on windows
+        if (!tempFile.renameTo(file) && !(file.delete() && tempFile.renameTo(file))){
+            FileUtils.deleteQuietly(tempFile);
+            error("Output file already exists, replace error. Process terminated");
+            return;
+        }
+        trace("Output file created");
+    }
+
+    /** Renderer by format, null if format can not be created */
+    private CommitRenderer createRenderer(String format) {
+        if (FormatEnum.JSON.is(format)){
+            // json file by internal dto
+            return new JsonRenderer(config.isPrettyJson(), repositories, releases);
+        } else if (FormatEnum.NDJSON.is(format)){
+            return new NdjsonRenderer();
+        } else if (FormatEnum.HTML.is(format)){
+            // html file by template (user or internal)
+            return config.getHtmlPageSize() > 0 ? createPagedHtmlRenderer(format.trim()) : createHtmlRenderer();
+        } else {
+            // other - txt file by templateLine 
+            return new TxtRenderer(lineTemplate, config.isGroupByRelease());
+        }
+    }
+
+    private HtmlRenderer createHtmlRenderer() {
+        String templateName = config.isUseInternalTemplate() ? getInternalTemplateName() : config.getTemplateFile();
+        try {
+            Template template = config.isUseInternalTemplate() ? VelocityTemplates.getInternal(templateName) : VelocityTemplates.getFile(templateName);
+            return new HtmlRenderer(template, releases, HtmlRenderer.usesCommitList(getHtmlTemplateText()));
+        } catch (Exception e) {
+            error(templateName + " not found: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** Index page and pages in output folder, page rendered and written by html executor */
+    private PagedHtmlRenderer createPagedHtmlRenderer(final String format) {
+        HtmlRenderer pageRenderer = createHtmlRenderer();
+        if (pageRenderer == null){
+            return null;
+        }
+        Template indexTemplate;
+        try {
+            indexTemplate = VelocityTemplates.getInternal("templateHtmlIndex.vm");
+        } catch (Exception e) {
+            error("templateHtmlIndex.vm not found: " + e.getMessage());
+            return null;
+        }
+        PagedHtmlRenderer.PageFiles files = new PagedHtmlRenderer.PageFiles() {
+            @Override
+            public String getIndexName() {
+                return getOutputFile(format).getName();
+            }
+
+            @Override
+            public String getName(int page) {
+                return getPageFile(format, page).getName();
+            }
+
+            @Override
+            public void write(int page, String content) throws Exception {
+                File file = getPageFile(format, page);
+                File tempFile = new File(file.getPath() + ".tmp");
+                Writer writer = openWriter(tempFile, format);
+                try {
+                    writer.write(content);
+                } finally {
+                    IOUtils.closeQuietly(writer);
+                }
+                metrics.count("html.pages", 1);
+                replaceIfChanged(tempFile, file);
+            }
+
+            @Override
+            public void removeFrom(int page) {
+                htmlPages = page - 1;
+                for (int i = page; getPageFile(format, i).isFile(); i++) {
+                    FileUtils.deleteQuietly(getPageFile(format, i));
+                }
+            }
+        };
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (htmlExecutor == null){
+            htmlExecutor = ParallelMapIterator.newExecutor(threads);
+        }
+        // one page merged and one waiting for each thread
+        return new PagedHtmlRenderer(pageRenderer.getTemplate(), indexTemplate, releases, config.getHtmlPageSize(), htmlExecutor, threads * 2, files);
+    }
+
+    private File getPageFile(String format, int page) {
+        return new File(config.getOutputFolder() + File.separator + config.getOutputFileName() + "-" + page + "." + format);
+    }
+
+    private File getOutputFile(String format) {
+        return new File(config.getOutputFolder() + File.separator + config.getOutputFileName() + "." + format.trim());
+    }
+
+    /**
+     * Convert commit to dto on demand, in batches by executor if not null.
+     * Maven environment parameters by head commit added when it is read
+     */
+    private Iterator<CommitDto> createCommitDtoIterator(final Iterator<CommitRecord> logs, ExecutorService executor, int threads) {
+        final Iterator<CommitRecord> records = new Iterator<CommitRecord>() {
+            private boolean isFirst = true;
+
+            @Override
+            public boolean hasNext() {
+                return logs.hasNext();
+            }
+
+            @Override
+            public CommitRecord next() {
+                CommitRecord commit = logs.next();
+                if (isFirst && !isSubmodule(commit)){
+                    // add to maven environment parameter with head commit
+                    addPropertyEnv("git.commit.hash", getShortHash(commit));
+                    addPropertyEnv("git.commit.date", getDate(commit));
+                    isFirst = false;
+                }
+                return commit;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("remove");
+            }
+        };
+        if (executor != null){
+            ParallelMapIterator.Mapper<CommitRecord, CommitDto> mapper = new ParallelMapIterator.Mapper<CommitRecord, CommitDto>() {
+                @Override
+                public CommitDto map(CommitRecord commit) {
+                    return toCommitDto(commit);
+                }
+            };
+            // two batches for each thread: one converted, one waiting
+            return new ParallelMapIterator<CommitRecord, CommitDto>(records, mapper, executor, DTO_BATCH_SIZE, threads * 2);
+        }
+        return new Iterator<CommitDto>() {
+            @Override
+            public boolean hasNext() {
+                return records.hasNext();
+            }
+
+            @Override
+            public CommitDto next() {
+                return toCommitDto(records.next());
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("remove");
+            }
+        };
+    }
+
+    /** Dto with metrics and trace, called from worker threads in parallel mode */
+    private CommitDto toCommitDto(CommitRecord commit) {
+        long start = dtoPhase.start();
+        CommitDto commitDto = getCommitDto(commit);
+        dtoPhase.stop(start);
+        if (config.isTrace()){
+            trace(commitDto.toString());
+        }
+        return commitDto;
+    }
+
+    /** Create JSON string */
+    protected String createJson(Set<String> currentBranches, List<CommitDto> commitDtoList) {
+        trace("create JSON");
+        try {
+            return render(new JsonRenderer(), currentBranches, commitDtoList);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Render all commits to string */
+    private String render(CommitRenderer renderer, Set<String> currentBranches, List<CommitDto> commitDtoList) throws Exception {
+        StringWriter writer = new StringWriter();
+        renderer.render(currentBranches, new CommitStream(commitDtoList), writer);
+        return writer.toString();
+    }
+
+    /** Add property to maven environment */
+    private void addPropertyEnv(String name, String value) {
+        properties.put(name, value);
+        environment.put(name, value);
+        trace("add property: " + name + " = " + value);
+    }
+
+    /** Fill only fields from "usedTokens" */
+    protected CommitDto getCommitDto(CommitRecord commit) {
+        CommitDto dto = new CommitDto();
+        if (usedTokens.contains(Token.H)){
+            dto.setHash(commit.getId().getName());
+        }
+        if (usedTokens.contains(Token.h)){
+            dto.setH(getShortHash(commit));
+        }
+        if (usedTokens.contains(Token.an)){
+            dto.setAn(commit.getAuthorName());
+        }
+        if (usedTokens.contains(Token.ad)){
+            dto.setAd(getDate(commit));
+        }
+        if (usedTokens.contains(Token.gitLabUrl)){
+            dto.setGitLabUrl(getGitLabUrl(commit));
+        }
+        if (usedTokens.contains(Token.repo)){
+            dto.setRepo(commit.getRepository());
+        }
+        if (usedTokens.contains(Token.release)){
+            dto.setRelease(commit.getRelease());
+        }
+        if (!diffStats.isEmpty()){
+            DiffStat stat = getDiffStat(commit);
+            if (usedTokens.contains(Token.files)){
+                dto.setFiles(stat.getFiles());
+            }
+            if (usedTokens.contains(Token.insertions)){
+                dto.setInsertions(stat.getInsertions());
+            }
+            if (usedTokens.contains(Token.deletions)){
+                dto.setDeletions(stat.getDeletions());
+            }
+        }
+        if (usedTokens.contains(Token.s) || usedTokens.contains(Token.issueUrl) || usedTokens.contains(Token.sWithUrl)){
+            String value = commit.getShortMessage();
+            if (usedTokens.contains(Token.s)){
+                dto.setS(value);
+            }
+            if (issueLinker == null){
+                dto.setIssueUrl("");
+                dto.setSWithUrl(value);
+            } else if (usedTokens.contains(Token.sWithUrl)){
+                // issueUrl and sWithUrl by one regexp search
+                issueLinker.fill(dto, value);
+            } else if (usedTokens.contains(Token.issueUrl)){
+                dto.setIssueUrl(issueLinker.getIssueUrl(value));
+            }
+        }
+        return dto;
+    }
+
+    /** Diff stat by calculator of commit repository, called from dto workers */
+    private DiffStat getDiffStat(CommitRecord commit) {
+        DiffStatCalculator calculator = diffStats.get(isSubmodule(commit) ? commit.getRepository() : SUPERPROJECT);
+        long start = diffPhase.start();
+        try {
+            return calculator.get(commit.getId());
+        } catch (IOException e) {
+            throw new IllegalStateException("diff of commit " + commit.getId().getName() + ": " + e.getMessage(), e);
+        } finally {
+            // dto time without diff
+            dtoPhase.exclude(diffPhase.stop(start));
+        }
+    }
+
+    /** Diff stat calculator for superproject and each submodule, with cache of diff stat */
+    private void createDiffStatCalculators(Repository repo) throws IOException {
+        diffStats.put(SUPERPROJECT, createDiffStatCalculator(repo));
+        if (submodules != null){
+            for (Submodule submodule : submodules) {
+                diffStats.put(submodule.path, createDiffStatCalculator(submodule.repo));
+            }
+        }
+    }
+
+    private DiffStatCalculator createDiffStatCalculator(Repository repo) throws IOException {
+        DiffStatCache cache = StringUtils.isEmpty(config.getDiffStatCacheFolder()) ? null
+                : DiffStatCache.open(new File(config.getDiffStatCacheFolder()), config.isDetectRenames(), config.getMaxDiffBlobSize());
+        return new DiffStatCalculator(repo, config.isDetectRenames(), config.getMaxDiffBlobSize(), cache);
+    }
+
+    private String getShortHash(CommitRecord commit) {
+        return commit.getId().abbreviate(8).name();
+    }
+
+    private String getDate(CommitRecord commit) {
+        return DATE_FORMAT.format(new Date(commit.getCommitTime() * 1000L));
+    }
+
+    /** Commit of ref, annotated tag is peeled */
+    private ObjectId resolveCommit(Repository repo, String ref) throws IOException {
+        ObjectId id = repo.resolve(ref);
+        if (id == null){
+            throw new IllegalArgumentException("ref not found: " + ref);
+        }
+        RevWalk walk = new RevWalk(repo);
+        try {
+            return walk.parseCommit(id).copy();
+        } finally {
+            walk.release();
+        }
+    }
+
+    /** Commit of sinceRef or latest tag reachable from commit, null if not specified or no tags */
+    private ObjectId resolveSince(Repository repo, ObjectId from) throws IOException {
+        if (StringUtils.isNotEmpty(config.getSinceRef())){
+            return resolveCommit(repo, config.getSinceRef());
+        }
+        if (!config.isSinceLatestTag()){
+            return null;
+        }
+        Map<ObjectId, List<String>> tags = releaseTags != null ? releaseTags : loadPeeledTags(repo);
+        if (tags.isEmpty()){
+            return null;
+        }
+        ObjectReader reader = repo.newObjectReader();
+        try {
+            // walk from commit to the first tagged commit: cost of walk is size of release
+            RevWalk walk = new RevWalk(reader);
+            walk.setRetainBody(false);
+            try {
+                walk.markStart(walk.parseCommit(from));
+                for (RevCommit commit : walk) {
+                    if (!commit.equals(from) && tags.containsKey(commit)){
+                        trace("since tag: " + tags.get(commit));
+                        return commit.copy();
+                    }
+                }
+                return null;
+            } finally {
+                walk.release();
+            }
+        } finally {
+            reader.release();
+        }
+    }
+
+    /** Peeled commit -> tag names. Peeled commits from packed-refs, objects read only for loose annotated tags */
+    private Map<ObjectId, List<String>> loadPeeledTags(Repository repo) throws IOException {
+        ObjectReader reader = repo.newObjectReader();
+        try {
+            return RefIndex.load(repo.getDirectory(), Collections.singletonList(Constants.R_TAGS)).getPeeledCommits(reader);
+        } finally {
+            reader.release();
+        }
+    }
+
+    /** Releases are grouped by own walk of superproject, params of other walks are not used */
+    private void warnNotUsedWithReleases() {
+        List<String> params = new ArrayList<String>();
+        if (config.isShareWalkResults()){
+            params.add("shareWalkResults");
+        }
+        if (config.isUseCommitIndex()){
+            params.add("useCommitIndex");
+        }
+        if (config.isIncludeSubmodules()){
+            params.add("includeSubmodules");
+        }
+        if (!params.isEmpty()){
+            warn("params not used with groupByRelease: " + StringUtils.join(params, ", "));
+        }
+    }
+
+    /**
+     * Commits of releases from the latest, release sections for output files.
+     * One walk for all tags stopped at count of commits, commits are in memory before output files are written
+     */
+    private Iterator<CommitRecord> getCommitsByRelease(Repository repo, ObjectId head) throws IOException {
+        ObjectReader reader = repo.newObjectReader();
+        List<ReleaseGrouper.Group> groups;
+        try {
+            groups = new ReleaseGrouper(releaseTags).group(reader, head, resolvedSince, config.getCountCommits(),
+                    createRevFilter(resolvedPaths), config.isFirstParent());
+        } finally {
+            reader.release();
+        }
+        releases = new ArrayList<ReleaseDto>();
+        for (ReleaseGrouper.Group group : groups) {
+            ReleaseDto release = new ReleaseDto();
+            release.setTag(group.getTag());
+            if (group.getCommit() != null){
+                release.setHash(group.getCommit().getName());
+                release.setDate(DATE_FORMAT.format(new Date(group.getCommitTime() * 1000L)));
+            }
+            release.setCount(group.getCommits().size());
+            releases.add(release);
+        }
+        trace("releases: " + releases.size());
+        List<List<CommitRecord>> commits = new ArrayList<List<CommitRecord>>();
+        for (ReleaseGrouper.Group group : groups) {
+            commits.add(group.getCommits());
+        }
+        return RepositoryMerge.byGroup(commits);
+    }
+
+    /** Paths from param or module folder relative to work tree, null if commits are not filtered */
+    private List<String> resolvePaths(Repository repo) throws IOException {
+        List<String> result = new ArrayList<String>();
+        if (StringUtils.isNotEmpty(config.getPaths())){
+            for (String path : config.getPaths().split(",")) {
+                String normalized = normalizePath(path);
+                if (normalized.length() > 0){
+                    result.add(normalized);
+                }
+            }
+        } else if (config.isModulePathFilter() && basedir != null && !repo.isBare()){
+            String workTree = repo.getWorkTree().getCanonicalPath();
+            String modulePath = basedir.getCanonicalPath();
+            if (modulePath.startsWith(workTree + File.separator)){
+                result.add(normalizePath(modulePath.substring(workTree.length() + 1)));
+            } else if (!modulePath.equals(workTree)){
+                throw new IllegalArgumentException("module folder is not in git work tree: " + modulePath);
+            }
+        }
+        if (result.isEmpty()){
+            return null;
+        }
+        trace("paths: " + result);
+        pathCache = StringUtils.isEmpty(config.getChangedPathCache()) ? ChangedPathCache.inMemory()
+                : ChangedPathCache.open(new File(config.getChangedPathCache()));
+        return result;
+    }
+
+    /** Path in git format: separator "/", without "./" and "/" at start and end */
+    private static String normalizePath(String path) {
+        String normalized = path.trim().replace('\\', '/');
+        while (normalized.startsWith("./")){
+            normalized = normalized.substring(2);
+        }
+        normalized = StringUtils.strip(normalized, "/");
+        return ".".equals(normalized) ? "" : normalized;
+    }
+
+    /** Commits from head (down to resolvedSince), read while iterated */
+    protected Iterator<CommitRecord> getCommitsFromRepo(Repository repo, ObjectId head) throws IOException, GitAPIException {
+        // index has full history, range and paths are walked
+        if (config.isUseCommitIndex() && !isRestrictedWalk() && resolvedSince == null && resolvedPaths == null
+                && StringUtils.isNotEmpty(config.getIndexFolder())){
+            CommitIndex index = CommitIndex.update(new File(config.getIndexFolder()), repo, head);
+            trace("commits in index: " + index.size());
+            return limit(index.iterator(), config.getCountCommits());
+        }
+        if (config.isLowMemoryWalk() || resolvedPaths != null || isRestrictedWalk()){
+            // commit bodies are not kept by walk
+            return createWalker(repo, head, resolvedSince, resolvedPaths);
+        }
+        return log(repo, head, resolvedSince);
+    }
+
+    /** Walk by firstParent or noMerges, not by log command */
+    private boolean isRestrictedWalk() {
+        return config.isFirstParent() || config.isNoMerges();
+    }
+
+    /** Walk without commit bodies from head down to since (if not null), filtered by paths (if not null) */
+    private CommitWalker createWalker(Repository repo, ObjectId head, ObjectId since, List<String> paths) throws IOException {
+        // side branches are not walked at all with first parent, not skipped after walk
+        CommitWalker walker = new CommitWalker(repo).setFirstParent(config.isFirstParent())
+                .markStart(head).setMaxCount(config.getCountCommits());
+        RevFilter filter = createRevFilter(paths);
+        if (filter != null){
+            walker.setRevFilter(filter);
+        }
+        return since == null ? walker : walker.markUninteresting(since);
+    }
+
+    /** Filter of walk by paths and noMerges, null - all commits */
+    private RevFilter createRevFilter(List<String> paths) {
+        RevFilter filter = paths == null ? null : new ChangedPathFilter(pathCache, paths, config.isFirstParent());
+        if (config.isNoMerges()){
+            filter = filter == null ? RevFilter.NO_MERGES : AndRevFilter.create(RevFilter.NO_MERGES, filter);
+        }
+        return filter;
+    }
+
+    /** Commits by log command from head down to since (if not null) */
+    private Iterator<CommitRecord> log(Repository repo, ObjectId head, ObjectId since) throws IOException, GitAPIException {
+        Git git = new Git(repo);
+        LogCommand log = git.log().add(head).setMaxCount(config.getCountCommits());
+        if (since != null){
+            // walk stops at commit
+            log.not(since);
+        }
+        final Iterator<RevCommit> commits = log.call().iterator();
+        return new Iterator<CommitRecord>() {
+            @Override
+            public boolean hasNext() {
+                return commits.hasNext();
+            }
+
+            @Override
+            public CommitRecord next() {
+                return CommitRecord.of(commits.next());
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("remove");
+            }
+        };
+    }
+
+    /** First count elements of iterator, all if count is negative */
+    private static <T> Iterator<T> limit(final Iterator<T> iterator, final int count) {
+        return new Iterator<T>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return (count < 0 || index < count) && iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()){
+                    throw new NoSuchElementException();
+                }
+                index++;
+                return iterator.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("remove");
+            }
+        };
+    }
+
+    /** Open submodules checked out in work tree, not initialized submodules are skipped */
+    private void openSubmodules(Repository repo, ObjectId from, Set<String> currentBranches) throws IOException {
+        submodules = new ArrayList<Submodule>();
+        repositories = new ArrayList<RepositoryDto>();
+        repositories.add(createRepositoryDto(SUPERPROJECT, from, currentBranches));
+        SubmoduleWalk walk = SubmoduleWalk.forIndex(repo);
+        try {
+            while (walk.next()) {
+                // folder or file .git (gitdir: ../.git/modules/name), not search in parent folders
+                File dotGit = new File(SubmoduleWalk.getSubmoduleDirectory(repo, walk.getPath()), Constants.DOT_GIT);
+                File submoduleGitDir = dotGit.exists() ? RepositoryPool.findGitDir(dotGit.getParentFile()) : null;
+                if (submoduleGitDir == null){
+                    trace("submodule not initialized: " + walk.getPath());
+                    continue;
+                }
+                Repository submoduleRepo = RepositoryPool.acquire(submoduleGitDir);
+                ObjectId head = submoduleRepo.resolve(Constants.HEAD);
+                if (head == null){
+                    // no commits
+                    RepositoryPool.release(submoduleRepo, config.getRepositoryIdleTimeout() * 1000L);
+                    continue;
+                }
+                submodules.add(new Submodule(walk.getPath(), submoduleRepo, head));
+                Set<String> branches = getCurrentBranches(submoduleRepo, submoduleRepo.getFullBranch());
+                repositories.add(createRepositoryDto(walk.getPath(), head, branches));
+                String url = submoduleRepo.getConfig().getString("remote", "origin", "url");
+                submoduleUrls.put(walk.getPath(), url == null ? "" : url + "/commit/");
+            }
+        } finally {
+            walk.release();
+        }
+        trace("submodules: " + submoduleUrls.keySet());
+    }
+
+    private static RepositoryDto createRepositoryDto(String path, ObjectId head, Set<String> branches) {
+        RepositoryDto dto = new RepositoryDto();
+        dto.setPath(path);
+        dto.setHead(head.getName());
+        dto.setBranches(branches);
+        return dto;
+    }
+
+    private void closeSubmodules() {
+        if (submodules != null){
+            for (Submodule submodule : submodules) {
+                RepositoryPool.release(submodule.repo, config.getRepositoryIdleTimeout() * 1000L);
+            }
+        }
+    }
+
+    /**
+     * Commits of superproject and submodules merged by submoduleOrder.
+     * Submodules are walked by bounded pool while superproject is walked by build thread
+     */
+    private Iterator<CommitRecord> getCommitsWithSubmodules(Repository repo, ObjectId from) throws Exception {
+        int threads = Math.min(config.getSubmoduleThreads() > 0 ? config.getSubmoduleThreads() : Runtime.getRuntime().availableProcessors(), submodules.size());
+        ExecutorService executor = threads > 0 ? ParallelMapIterator.newExecutor(threads) : null;
+        List<List<CommitRecord>> commits = new ArrayList<List<CommitRecord>>();
+        try {
+            List<Future<List<CommitRecord>>> walks = new ArrayList<Future<List<CommitRecord>>>();
+            for (final Submodule submodule : submodules) {
+                walks.add(executor.submit(new Callable<List<CommitRecord>>() {
+                    @Override
+                    public List<CommitRecord> call() throws Exception {
+                        // range and paths of superproject are not refs and paths of submodule
+                        Iterator<CommitRecord> logs = config.isLowMemoryWalk() || isRestrictedWalk()
+                                ? createWalker(submodule.repo, submodule.head, null, null)
+                                : log(submodule.repo, submodule.head, null);
+                        return RepositoryMerge.collect(logs, submodule.path);
+                    }
+                }));
+            }
+            commits.add(RepositoryMerge.collect(getCommitsFromRepo(repo, from), SUPERPROJECT));
+            for (Future<List<CommitRecord>> walk : walks) {
+                try {
+                    commits.add(walk.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException("submodule walk error: " + e.getCause().getMessage(), e.getCause());
+                }
+            }
+        } finally {
+            if (executor != null){
+                executor.shutdownNow();
+            }
+        }
+        if ("group".equalsIgnoreCase(config.getSubmoduleOrder())){
+            return RepositoryMerge.byGroup(commits);
+        }
+        return limit(RepositoryMerge.byTime(commits), config.getCountCommits());
+    }
+
+    /** All commits, shared by modules of build with the same repository */
+    private List<CommitRecord> getSharedWalk(final Repository repo, final ObjectId head) throws Exception {
+        String key = repo.getDirectory().getCanonicalPath() + "|" + head.getName() + "|" + config.getCountCommits() + "|" + config.isUseCommitIndex()
+                + "|" + config.isFirstParent() + "|" + config.isNoMerges()
+                + "|" + (resolvedSince == null ? "" : resolvedSince.getName()) + "|" + resolvedPaths;
+        return WalkCache.forSession(session).get(key, new Callable<List<CommitRecord>>() {
+            @Override
+            public List<CommitRecord> call() throws Exception {
+                trace("walk shared by modules");
+                List<CommitRecord> commits = new ArrayList<CommitRecord>();
+                Iterator<CommitRecord> logs = getCommitsFromRepo(repo, head);
+                while (logs.hasNext()) {
+                    commits.add(logs.next());
+                }
+                return Collections.unmodifiableList(commits);
+            }
+        });
+    }
+
+    /** Create lines with commit by template file */
+    protected String createHtml(Set<String> currentBranches, List<CommitDto> commitDtoList) throws Exception {
+        trace("create HTML");
+        HtmlRenderer renderer = createHtmlRenderer();
+        return renderer == null ? null : render(renderer, currentBranches, commitDtoList);
+    }
+
+    /** Create lines with commit by template string from plugin config */
+    protected  String createTxt(Set<String> currentBranches, String templateLine, List<CommitDto> commitDtoList) {
+        return createTxt(currentBranches, LineTemplate.compile(templateLine), commitDtoList);
+    }
+
+    /** Create lines with commit by compiled template line */
+    protected  String createTxt(Set<String> currentBranches, LineTemplate template, List<CommitDto> commitDtoList) {
+        trace("create TXT");
+        try {
+            return render(new TxtRenderer(template), currentBranches, commitDtoList);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Current branch name (checkout branch) or names of refs pointing to commit (checkout by commit),
+     * annotated tags of commit are not included (ref points to tag object)
+     * Magic code... I don't remember the reasons
+     */
+    protected Set<String> getCurrentBranches(Repository repo, String fullBranch) throws IOException {
+        List<String> refNames;
+        if (ObjectId.isId(fullBranch)){
+            RefIndex refIndex = RefIndex.load(repo.getDirectory(), Arrays.asList(config.getRefNamespaces().split(",")));
+            refNames = refIndex.getNames(ObjectId.fromString(fullBranch));
+        } else {
+            refNames = Collections.singletonList(fullBranch);
+        }
+
+        Set<String> currentBranches = new HashSet<String>();
+        for (String refName : refNames) {
+            String branch = refName.replace("refs/", "").replace("remotes/", "").replace("origin/", "").replace("heads/", "");
+            if (!branch.equals("HEAD")){
+                currentBranches.add(branch);
+            }
+        }
+        trace("currentBranches: " + currentBranches);
+        return currentBranches;
+    }
+
+    /** Url of commit in git lab of its repository (superproject or submodule) */
+    private String getGitLabUrl(CommitRecord commit) {
+        String url = isSubmodule(commit) ? submoduleUrls.get(commit.getRepository()) : resolvedGitLabUrl;
+        return addEndSlash(url) + commit.getId().getName();
+    }
+
+    private static boolean isSubmodule(CommitRecord commit) {
+        return commit.getRepository() != null && !SUPERPROJECT.equals(commit.getRepository());
+    }
+
+    /** Add slash to end is need */
+    private String addEndSlash(String url){
+        if (StringUtils.isEmpty(url)){
+            return "";
+        }
+        return url.endsWith("/") ? url : url + "/";
+    }
+    
+    /** Opened submodule repository */
+    private static class Submodule {
+        private final String path;
+        private final Repository repo;
+        private final ObjectId head;
+
+        Submodule(String path, Repository repo, ObjectId head) {
+            this.path = path;
+            this.repo = repo;
+            this.head = head;
+        }
+    }
+
+    private void error(String message) {
+        if (config.isSilent()){
+            System.err.println(message);
+        } else {
+            throw new RuntimeException("gitlog-plugin: " + message);
+        }
+    }
+
+    private void warn(String message) {
+        System.err.println("gitlog-plugin: " + message);
+    }
+
+    private void trace(String str) {
+        if (config.isTrace()){
+            System.out.println(str);
+        }
+    }
+}
@@ -10,6 +10,9 @@ import lombok.ToString;
  * %an Author name
  * %ad Author date
  * %s  Message (head)
+ * %repo Submodule path ("." - superproject), only if submodules are aggregated
+ * %files, %insertions, %deletions Changed files and lines (diff with first parent)
+ * %release Tag of release containing commit, only if grouped by release
  */
 @Getter
 @Setter
@@ -23,4 +26,9 @@ public class CommitDto {
     private String sWithUrl;
     private String gitLabUrl;
     private String issueUrl;
+    private String repo;
+    private Integer files;
+    private Integer insertions;
+    private Integer deletions;
+    private String release;
 }
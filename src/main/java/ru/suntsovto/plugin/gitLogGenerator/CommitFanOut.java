@@ -0,0 +1,146 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One commit walk for several output files.
+ * Each sink works in own thread and reads commits from own bounded queue,
+ * so walk time and all formats time overlap and commits are not kept in memory
+ */
+public class CommitFanOut {
+    /** Marker of the last commit */
+    private static final Object END = new Object();
+    /** Marker of failed walk */
+    private static final Object ABORT = new Object();
+
+    private final int queueSize;
+
+    public CommitFanOut(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    /** Consumer of all commits, for example renderer to file */
+    public interface CommitSink {
+        void consume(CommitStream commits) throws Exception;
+    }
+
+    /** Read commits once and pass each commit to all sinks. Return after all sinks completed */
+    public void run(Iterator<CommitDto> commits, List<CommitSink> sinks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(sinks.size(), new SinkThreadFactory());
+        List<BlockingQueue<Object>> queues = new ArrayList<BlockingQueue<Object>>();
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        try {
+            for (final CommitSink sink : sinks) {
+                final BlockingQueue<Object> queue = new ArrayBlockingQueue<Object>(queueSize);
+                queues.add(queue);
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        sink.consume(new CommitStream(new QueueIterator(queue)));
+                        return null;
+                    }
+                }));
+            }
+
+            boolean walked = false;
+            try {
+                while (commits.hasNext()) {
+                    CommitDto commit = commits.next();
+                    for (int i = 0; i < queues.size(); i++) {
+                        put(queues.get(i), futures.get(i), commit);
+                    }
+                }
+                walked = true;
+            } finally {
+                for (int i = 0; i < queues.size(); i++) {
+                    put(queues.get(i), futures.get(i), walked ? END : ABORT);
+                }
+            }
+
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw cause instanceof Exception ? (Exception) cause : e;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /** Put to queue, skip if sink already completed (error in sink) */
+    private void put(BlockingQueue<Object> queue, Future<?> future, Object value) throws InterruptedException {
+        while (!future.isDone()) {
+            if (queue.offer(value, 100, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        }
+    }
+
+    /** Commits from queue until END marker */
+    private static class QueueIterator implements Iterator<CommitDto> {
+        private final BlockingQueue<Object> queue;
+        private Object next;
+
+        QueueIterator(BlockingQueue<Object> queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = queue.take();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting commit", e);
+                }
+            }
+            if (next == ABORT) {
+                throw new IllegalStateException("Commit walk failed");
+            }
+            return next != END;
+        }
+
+        @Override
+        public CommitDto next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            CommitDto commit = (CommitDto) next;
+            next = null;
+            return commit;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove");
+        }
+    }
+
+    private static class SinkThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "gitlog-sink-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+/**
+ * Commits of repository stored on disk by columns: id, commit time, author (id in dictionary), short message.
+ * Files are only appended: new commits from HEAD down to the last indexed commit are added as new segment.
+ * Commits are read newest first (segments from last to first) through memory-mapped windows of files:
+ * files may be bigger than 2 GB, mapped address space is limited by window and released with window by GC.
+ * If the last indexed commit is not in history of HEAD (rebase, other branch) or new commits are not newer than it
+ * (merge of old branch: commits must be between old commits in date order of walk), index is created again
+ * in new files (generation), files of other generations are deleted
+ */
+public class CommitIndex {
+    private static final int VERSION = 1;
+    private static final String META = "meta.properties";
+    /** Size of mapped part of column file */
+    private static final int WINDOW_SIZE = 32 * 1024 * 1024;
+    private static final ConcurrentHashMap<String, Object> LOCKS = new ConcurrentHashMap<String, Object>();
+
+    private final File folder;
+    private final int generation;
+    private final ObjectId tip;
+    /** Start index of each segment, last element - count of commits */
+    private final int[] segmentStarts;
+    /** Offset in messages file of each segment start, last element - size of messages file */
+    private final long[] segmentOffsets;
+    private final List<String> authors;
+
+    private CommitIndex(File folder, int generation, ObjectId tip, int[] segmentStarts, long[] segmentOffsets, List<String> authors) {
+        this.folder = folder;
+        this.generation = generation;
+        this.tip = tip;
+        this.segmentStarts = segmentStarts;
+        this.segmentOffsets = segmentOffsets;
+        this.authors = authors;
+    }
+
+    /** Index with all commits from head, commits after last indexed commit are walked and added */
+    public static CommitIndex update(File folder, Repository repo, ObjectId head) throws IOException {
+        String key = folder.getCanonicalPath();
+        LOCKS.putIfAbsent(key, new Object());
+        Object lock = LOCKS.get(key);
+        synchronized (lock) {
+            FileUtils.forceMkdir(folder);
+            RandomAccessFile lockFile = new RandomAccessFile(new File(folder, "index.lock"), "rw");
+            FileLock fileLock = lockFile.getChannel().lock();
+            try {
+                return updateLocked(folder, repo, head);
+            } finally {
+                fileLock.release();
+                IOUtils.closeQuietly(lockFile);
+            }
+        }
+    }
+
+    private static CommitIndex updateLocked(File folder, Repository repo, ObjectId head) throws IOException {
+        CommitIndex index = read(folder);
+        if (index != null && head.equals(index.tip)) {
+            return index;
+        }
+
+        if (index != null && isAncestor(repo, index.tip, head)) {
+            // new segment is read before append: it is appended only if all commits are newer than indexed
+            List<CommitRecord> commits = getNewerCommits(repo, head, index.tip);
+            if (commits != null) {
+                return index.append(commits.iterator(), head);
+            }
+        }
+
+        // full history walk for new index (new generation): commit bodies are not kept
+        int generation = index == null ? 1 : index.generation + 1;
+        index = new CommitIndex(folder, generation, null, new int[]{0}, new long[]{0}, new ArrayList<String>());
+        index.deleteOtherGenerations();
+        CommitWalker walker = new CommitWalker(repo).markStart(head);
+        try {
+            return index.append(walker, head);
+        } finally {
+            walker.release();
+        }
+    }
+
+    /** Commits from head down to tip, null if any of them is not newer than tip (segments would not be in date order) */
+    private static List<CommitRecord> getNewerCommits(Repository repo, ObjectId head, ObjectId tip) throws IOException {
+        int tipTime;
+        RevWalk walk = new RevWalk(repo);
+        try {
+            tipTime = walk.parseCommit(tip).getCommitTime();
+        } finally {
+            walk.release();
+        }
+        List<CommitRecord> commits = new ArrayList<CommitRecord>();
+        CommitWalker walker = new CommitWalker(repo).markStart(head).markUninteresting(tip);
+        try {
+            while (walker.hasNext()) {
+                CommitRecord commit = walker.next();
+                if (commit.getCommitTime() <= tipTime) {
+                    return null;
+                }
+                commits.add(commit);
+            }
+        } finally {
+            walker.release();
+        }
+        return commits;
+    }
+
+    private static boolean isAncestor(Repository repo, ObjectId tip, ObjectId head) throws IOException {
+        if (!repo.hasObject(tip)) {
+            return false;
+        }
+        RevWalk walk = new RevWalk(repo);
+        try {
+            return walk.isMergedInto(walk.parseCommit(tip), walk.parseCommit(head));
+        } finally {
+            walk.release();
+        }
+    }
+
+    /** Count of commits */
+    public int size() {
+        return segmentStarts[segmentStarts.length - 1];
+    }
+
+    /** Commits from head, newest first */
+    public Iterator<CommitRecord> iterator() {
+        return new IndexIterator(column("ids", (long) size() * Constants.OBJECT_ID_LENGTH), column("times", size() * 4L),
+                column("authors", size() * 4L), column("messages", segmentOffsets[segmentOffsets.length - 1]));
+    }
+
+    /** Add commits from walk as new segment */
+    private CommitIndex append(Iterator<CommitRecord> commits, ObjectId head) throws IOException {
+        Map<String, Integer> authorIds = new HashMap<String, Integer>();
+        for (int i = 0; i < authors.size(); i++) {
+            authorIds.put(authors.get(i), i);
+        }
+        List<String> newAuthors = new ArrayList<String>(authors);
+
+        int count = size();
+        DataOutputStream ids = openAppend("ids");
+        DataOutputStream times = openAppend("times");
+        DataOutputStream authorColumn = openAppend("authors");
+        DataOutputStream messages = openAppend("messages");
+        DataOutputStream dictionary = openAppend("dict");
+        int added = 0;
+        try {
+            byte[] id = new byte[Constants.OBJECT_ID_LENGTH];
+            while (commits.hasNext()) {
+                CommitRecord commit = commits.next();
+                commit.getId().copyRawTo(id, 0);
+                ids.write(id);
+                times.writeInt(commit.getCommitTime());
+
+                String author = commit.getAuthorName() == null ? "" : commit.getAuthorName();
+                Integer authorId = authorIds.get(author);
+                if (authorId == null) {
+                    authorId = newAuthors.size();
+                    newAuthors.add(author);
+                    authorIds.put(author, authorId);
+                    dictionary.write((author + "\n").getBytes("utf-8"));
+                }
+                authorColumn.writeInt(authorId);
+
+                byte[] message = commit.getShortMessage().getBytes("utf-8");
+                messages.writeInt(message.length);
+                messages.write(message);
+                added++;
+            }
+        } finally {
+            IOUtils.closeQuietly(ids);
+            IOUtils.closeQuietly(times);
+            IOUtils.closeQuietly(authorColumn);
+            IOUtils.closeQuietly(messages);
+            IOUtils.closeQuietly(dictionary);
+        }
+        long messagesSize = new File(folder, fileName("messages")).length();
+
+        int[] starts = segmentStarts;
+        long[] offsets = segmentOffsets;
+        if (added > 0) {
+            starts = new int[segmentStarts.length + 1];
+            System.arraycopy(segmentStarts, 0, starts, 0, segmentStarts.length);
+            starts[starts.length - 1] = count + added;
+            offsets = new long[segmentOffsets.length + 1];
+            System.arraycopy(segmentOffsets, 0, offsets, 0, segmentOffsets.length);
+            offsets[offsets.length - 1] = messagesSize;
+        }
+        CommitIndex index = new CommitIndex(folder, generation, head.copy(), starts, offsets, newAuthors);
+        index.writeMeta();
+        return index;
+    }
+
+    /** Index from meta file, null if not exists or other version */
+    private static CommitIndex read(File folder) throws IOException {
+        File metaFile = new File(folder, META);
+        if (!metaFile.isFile()) {
+            return null;
+        }
+        Properties meta = new Properties();
+        InputStream is = FileUtils.openInputStream(metaFile);
+        try {
+            meta.load(is);
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+        if (!String.valueOf(VERSION).equals(meta.getProperty("version"))) {
+            return null;
+        }
+
+        int generation = Integer.parseInt(meta.getProperty("generation"));
+        String[] starts = meta.getProperty("segments").split(",");
+        String[] offsets = meta.getProperty("segmentOffsets").split(",");
+        int[] segmentStarts = new int[starts.length];
+        long[] segmentOffsets = new long[offsets.length];
+        for (int i = 0; i < starts.length; i++) {
+            segmentStarts[i] = Integer.parseInt(starts[i]);
+            segmentOffsets[i] = Long.parseLong(offsets[i]);
+        }
+        File dictionary = new File(folder, "dict." + generation + ".bin");
+        List<String> authors = dictionary.isFile() ? new ArrayList<String>(FileUtils.readLines(dictionary, "utf-8")) : new ArrayList<String>();
+        return new CommitIndex(folder, generation, ObjectId.fromString(meta.getProperty("tip")), segmentStarts, segmentOffsets, authors);
+    }
+
+    /** Meta file written after data files, so data of not finished append is not used */
+    private void writeMeta() throws IOException {
+        Properties meta = new Properties();
+        meta.setProperty("version", String.valueOf(VERSION));
+        meta.setProperty("generation", String.valueOf(generation));
+        meta.setProperty("tip", tip.getName());
+        StringBuilder starts = new StringBuilder();
+        StringBuilder offsets = new StringBuilder();
+        for (int i = 0; i < segmentStarts.length; i++) {
+            starts.append(i == 0 ? "" : ",").append(segmentStarts[i]);
+            offsets.append(i == 0 ? "" : ",").append(segmentOffsets[i]);
+        }
+        meta.setProperty("segments", starts.toString());
+        meta.setProperty("segmentOffsets", offsets.toString());
+
+        File tempFile = new File(folder, META + ".tmp");
+        OutputStream os = FileUtils.openOutputStream(tempFile);
+        try {
+            meta.store(os, "gitlog-plugin commit index");
+        } finally {
+            IOUtils.closeQuietly(os);
+        }
+        File metaFile = new File(folder, META);
+        if (!tempFile.renameTo(metaFile) && !(metaFile.delete() && tempFile.renameTo(metaFile))) {
+            throw new IOException("Commit index not saved: " + metaFile);
+        }
+    }
+
+    private void deleteOtherGenerations() {
+        File[] files = folder.listFiles();
+        if (files == null) {
+            return;
+        }
+        String suffix = "." + generation + ".bin";
+        for (File file : files) {
+            if (file.getName().endsWith(".bin") && !file.getName().endsWith(suffix)) {
+                // mapped file can not be deleted on windows, deleted next time
+                FileUtils.deleteQuietly(file);
+            }
+        }
+    }
+
+    private String fileName(String column) {
+        return column + "." + generation + ".bin";
+    }
+
+    private DataOutputStream openAppend(String column) throws IOException {
+        File file = new File(folder, fileName(column));
+        // data after last saved meta (not finished append) is removed
+        long size = getSavedSize(column);
+        if (file.length() > size) {
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                raf.setLength(size);
+            } finally {
+                raf.close();
+            }
+        }
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true), 64 * 1024));
+    }
+
+    private long getSavedSize(String column) throws IOException {
+        if ("ids".equals(column)) {
+            return (long) size() * Constants.OBJECT_ID_LENGTH;
+        } else if ("times".equals(column) || "authors".equals(column)) {
+            return size() * 4L;
+        } else if ("messages".equals(column)) {
+            return segmentOffsets[segmentOffsets.length - 1];
+        }
+        File dictionary = new File(folder, fileName(column));
+        long size = 0;
+        for (String author : authors) {
+            size += (author + "\n").getBytes("utf-8").length;
+        }
+        return dictionary.isFile() ? size : 0;
+    }
+
+    private MappedColumn column(String column, long size) {
+        return new MappedColumn(new File(folder, fileName(column)), size, WINDOW_SIZE);
+    }
+
+    /** Column file read through one mapped window, window is mapped again from position out of it */
+    static class MappedColumn {
+        private final File file;
+        private final long size;
+        private final int windowSize;
+        private MappedByteBuffer window;
+        private long windowStart;
+
+        /** @param size saved size of file, data after it is not read */
+        MappedColumn(File file, long size, int windowSize) {
+            this.file = file;
+            this.size = size;
+            this.windowSize = windowSize;
+        }
+
+        /** Buffer at position of file with length bytes remaining */
+        ByteBuffer at(long position, int length) throws IOException {
+            if (position < 0 || length < 0 || position + length > size) {
+                throw new IOException("Commit index is corrupted: " + file + " has no " + length + " bytes at " + position);
+            }
+            if (window == null || position < windowStart || position + length > windowStart + window.capacity()) {
+                long mapSize = Math.min(size - position, Math.max(windowSize, length));
+                RandomAccessFile raf = new RandomAccessFile(file, "r");
+                try {
+                    window = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, position, mapSize);
+                } finally {
+                    raf.close();
+                }
+                windowStart = position;
+            }
+            window.position((int) (position - windowStart));
+            return window;
+        }
+    }
+
+    /** Segments from last (newest commits) to first, commits of segment in walk order */
+    private class IndexIterator implements Iterator<CommitRecord> {
+        private final MappedColumn ids;
+        private final MappedColumn times;
+        private final MappedColumn authorColumn;
+        private final MappedColumn messages;
+        private final byte[] id = new byte[Constants.OBJECT_ID_LENGTH];
+        private int segment = segmentStarts.length - 1;
+        private int position;
+        private int end;
+        private long messageOffset;
+
+        IndexIterator(MappedColumn ids, MappedColumn times, MappedColumn authorColumn, MappedColumn messages) {
+            this.ids = ids;
+            this.times = times;
+            this.authorColumn = authorColumn;
+            this.messages = messages;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (position >= end && segment > 0) {
+                segment--;
+                position = segmentStarts[segment];
+                end = segmentStarts[segment + 1];
+                messageOffset = segmentOffsets[segment];
+            }
+            return position < end;
+        }
+
+        @Override
+        public CommitRecord next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            try {
+                ids.at((long) position * Constants.OBJECT_ID_LENGTH, Constants.OBJECT_ID_LENGTH).get(id);
+                int time = times.at(position * 4L, 4).getInt();
+                String author = authors.get(authorColumn.at(position * 4L, 4).getInt());
+                byte[] message = new byte[messages.at(messageOffset, 4).getInt()];
+                messages.at(messageOffset + 4, message.length).get(message);
+                messageOffset += 4 + message.length;
+                position++;
+                return new CommitRecord(ObjectId.fromRaw(id), author, time, new String(message, "utf-8"));
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("remove");
+        }
+    }
+}
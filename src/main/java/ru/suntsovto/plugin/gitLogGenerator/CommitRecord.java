@@ -0,0 +1,55 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+/**
+ * Commit fields read from repository, without commit body and walk state.
+ * Source of CommitDto, can be kept in memory and shared between modules
+ */
+@Getter
+@ToString
+public class CommitRecord {
+    private final ObjectId id;
+    private final String authorName;
+    /** Seconds since epoch */
+    private final int commitTime;
+    private final String shortMessage;
+    /** Path of submodule ("." - superproject), null if submodules are not aggregated */
+    private final String repository;
+    /** Tag of release containing commit, null if not grouped by release or commit is not released */
+    private final String release;
+
+    public CommitRecord(ObjectId id, String authorName, int commitTime, String shortMessage) {
+        this(id, authorName, commitTime, shortMessage, null);
+    }
+
+    public CommitRecord(ObjectId id, String authorName, int commitTime, String shortMessage, String repository) {
+        this(id, authorName, commitTime, shortMessage, repository, null);
+    }
+
+    public CommitRecord(ObjectId id, String authorName, int commitTime, String shortMessage, String repository, String release) {
+        this.id = id;
+        this.authorName = authorName;
+        this.commitTime = commitTime;
+        this.shortMessage = shortMessage;
+        this.repository = repository;
+        this.release = release;
+    }
+
+    public static CommitRecord of(RevCommit commit) {
+        return new CommitRecord(commit.copy(), commit.getAuthorIdent().getName(), commit.getCommitTime(), commit.getShortMessage());
+    }
+
+    /** The same commit from repository (submodule path) */
+    public CommitRecord withRepository(String repository) {
+        return new CommitRecord(id, authorName, commitTime, shortMessage, repository, release);
+    }
+
+    /** The same commit in release (tag) */
+    public CommitRecord withRelease(String release) {
+        return new CommitRecord(id, authorName, commitTime, shortMessage, repository, release);
+    }
+}
@@ -0,0 +1,173 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Values of commits in append-only file of records (commit id, value), shared by processes:
+ * new records are appended under file lock, records appended by other processes are read from tail of file.
+ * Not complete record at the end (process stopped while writing) is ignored and overwritten.
+ * Several instances of one file in JVM (dropped from open files while still used) write it in turn:
+ * file lock is held by JVM, not by thread, and overlapping lock of the same file throws exception.
+ * Without file values are kept only in memory of instance.
+ * Value format is defined by subclass
+ */
+public abstract class CommitRecordFile<V> {
+    /** New records written to file by this count */
+    private static final int FLUSH_SIZE = 1024;
+    /** Count of instances kept open in JVM for each type of file */
+    static final int MAX_OPEN_FILES = 8;
+    /** Monitors of files by canonical path, held while file is locked */
+    private static final ConcurrentMap<String, Object> FILE_MONITORS = new ConcurrentHashMap<String, Object>();
+
+    private final File file;
+    private final Map<ObjectId, V> values = new ConcurrentHashMap<ObjectId, V>();
+    private final List<ObjectId> pending = new ArrayList<ObjectId>();
+    /** Length of file with complete records read */
+    private long loadedLength;
+
+    /** @param file null - values are not stored */
+    protected CommitRecordFile(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Instances by canonical path of file, not synchronized. Least recently opened instance is dropped over MAX_OPEN_FILES:
+     * its values stay in memory only while a changelog uses it, next open creates other instance and reads them from file
+     */
+    static <T extends CommitRecordFile<?>> Map<String, T> openFiles() {
+        return new LinkedHashMap<String, T>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, T> eldest) {
+                return size() > MAX_OPEN_FILES;
+            }
+        };
+    }
+
+    /** Value of commit, null if not computed */
+    public V get(ObjectId commit) {
+        return values.get(commit);
+    }
+
+    /** Add value of commit if absent, written to file later */
+    protected synchronized void add(ObjectId commit, V value) throws IOException {
+        if (values.get(commit) == null) {
+            ObjectId id = commit.copy();
+            values.put(id, value);
+            if (file == null) {
+                return;
+            }
+            pending.add(id);
+            if (pending.size() >= FLUSH_SIZE) {
+                flush();
+            }
+        }
+    }
+
+    /** Write value after commit id */
+    protected abstract void writeValue(DataOutputStream out, V value) throws IOException;
+
+    /** Value after commit id, null if record is not complete */
+    protected abstract V readValue(ByteBuffer buffer);
+
+    /** Write new records to file */
+    public synchronized void flush() throws IOException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        byte[] id = new byte[Constants.OBJECT_ID_LENGTH];
+        for (ObjectId commit : pending) {
+            commit.copyRawTo(id, 0);
+            out.write(id);
+            writeValue(out, values.get(commit));
+        }
+        pending.clear();
+
+        FileUtils.forceMkdir(file.getParentFile());
+        synchronized (getMonitor(file)) {
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            try {
+                FileLock lock = raf.getChannel().lock();
+                try {
+                    // records of other processes and instances, not complete record at the end is removed
+                    readTail(raf);
+                    raf.setLength(loadedLength);
+                    raf.seek(loadedLength);
+                    raf.write(bytes.toByteArray());
+                    loadedLength = raf.length();
+                } finally {
+                    lock.release();
+                }
+            } finally {
+                IOUtils.closeQuietly(raf);
+            }
+        }
+    }
+
+    private static Object getMonitor(File file) throws IOException {
+        String key = file.getCanonicalPath();
+        Object monitor = FILE_MONITORS.get(key);
+        if (monitor == null) {
+            Object created = new Object();
+            monitor = FILE_MONITORS.putIfAbsent(key, created);
+            if (monitor == null) {
+                monitor = created;
+            }
+        }
+        return monitor;
+    }
+
+    /** Read records added to file since last read */
+    protected synchronized void readTail() throws IOException {
+        if (file == null || !file.isFile() || file.length() <= loadedLength) {
+            return;
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            readTail(raf);
+        } finally {
+            IOUtils.closeQuietly(raf);
+        }
+    }
+
+    private void readTail(RandomAccessFile raf) throws IOException {
+        long length = raf.length();
+        if (length <= loadedLength) {
+            return;
+        }
+        byte[] tail = new byte[(int) (length - loadedLength)];
+        raf.seek(loadedLength);
+        raf.readFully(tail);
+        ByteBuffer buffer = ByteBuffer.wrap(tail);
+        byte[] id = new byte[Constants.OBJECT_ID_LENGTH];
+        while (buffer.remaining() >= Constants.OBJECT_ID_LENGTH) {
+            buffer.mark();
+            buffer.get(id);
+            V value = readValue(buffer);
+            if (value == null) {
+                buffer.reset();
+                break;
+            }
+            values.put(ObjectId.fromRaw(id), value);
+        }
+        loadedLength += buffer.position();
+    }
+}
@@ -0,0 +1,13 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.io.Writer;
+import java.util.Set;
+
+/**
+ * Write commits to output in one format (txt, json, html).
+ * Commits are read one by one while rendered, the whole output is not kept in memory
+ */
+public interface CommitRenderer {
+
+    void render(Set<String> currentBranches, CommitStream commits, Writer writer) throws Exception;
+}
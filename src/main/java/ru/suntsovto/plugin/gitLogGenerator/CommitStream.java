@@ -0,0 +1,47 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * One-pass commit source for renderers, used as "commitStream" in velocity template
+ * (list "commits" is made from it when template uses it).
+ * Size is known only if commits are already in memory, otherwise -1
+ */
+public class CommitStream implements Iterator<CommitDto> {
+    private final Iterator<CommitDto> iterator;
+    private final int size;
+
+    public CommitStream(Iterator<CommitDto> iterator) {
+        this(iterator, -1);
+    }
+
+    public CommitStream(Collection<CommitDto> commits) {
+        this(commits.iterator(), commits.size());
+    }
+
+    private CommitStream(Iterator<CommitDto> iterator, int size) {
+        this.iterator = iterator;
+        this.size = size;
+    }
+
+    /** Count commits if known, -1 if commits are read while rendered */
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return iterator.hasNext();
+    }
+
+    @Override
+    public CommitDto next() {
+        return iterator.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+}
@@ -0,0 +1,259 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.eclipse.jgit.errors.StopWalkException;
+import org.eclipse.jgit.lib.AbbreviatedObjectId;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+import org.eclipse.jgit.util.RawParseUtils;
+import org.eclipse.jgit.util.StringUtils;
+
+/**
+ * Commit walk without commit bodies in memory.
+ * Walk keeps only headers (parents, time). Raw commit read by walk is kept by reader until commit is returned
+ * (or skipped by filter): author and first line of message are read from it and the buffer is dropped,
+ * so each commit is read once. Reader and walk are released after the last commit.
+ * With first parent only the first parent chain is walked (see FirstParentChain)
+ */
+public class CommitWalker implements Iterator<CommitRecord> {
+    private final ObjectReader reader;
+    private final BodyReader bodyReader;
+    private final RevWalk walk;
+    private int maxCount = -1;
+    private int count;
+    private RevCommit nextCommit;
+    private boolean released;
+    private boolean firstParent;
+    private ObjectId start;
+    private ObjectId since;
+    private RevFilter filter;
+    /** Created on first commit if first parent */
+    private FirstParentChain chain;
+
+    public CommitWalker(Repository repo) {
+        reader = repo.newObjectReader();
+        bodyReader = new BodyReader(reader);
+        walk = new RevWalk(bodyReader);
+        walk.setRetainBody(false);
+    }
+
+    public CommitWalker markStart(ObjectId id) throws IOException {
+        walk.markStart(walk.parseCommit(id));
+        start = id;
+        return this;
+    }
+
+    /** Commit and its history are not walked */
+    public CommitWalker markUninteresting(ObjectId id) throws IOException {
+        walk.markUninteresting(walk.parseCommit(id));
+        since = id;
+        return this;
+    }
+
+    /** Only commits accepted by filter are returned, count is applied after filter */
+    public CommitWalker setRevFilter(final RevFilter filter) {
+        this.filter = new RevFilter() {
+            @Override
+            public boolean include(RevWalk revWalk, RevCommit commit) throws IOException {
+                boolean included = filter.include(revWalk, commit);
+                if (!included) {
+                    bodyReader.takeBody(commit);
+                }
+                return included;
+            }
+
+            @Override
+            public boolean requiresCommitBody() {
+                return filter.requiresCommitBody();
+            }
+
+            @Override
+            public RevFilter clone() {
+                return this;
+            }
+        };
+        walk.setRevFilter(this.filter);
+        return this;
+    }
+
+    /** Only first parent of each commit is walked (one start commit), side branches of merges are not read */
+    public CommitWalker setFirstParent(boolean firstParent) {
+        this.firstParent = firstParent;
+        return this;
+    }
+
+    /** Count of commits, negative - all */
+    public CommitWalker setMaxCount(int maxCount) {
+        this.maxCount = maxCount;
+        return this;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextCommit == null && !released) {
+            try {
+                nextCommit = maxCount < 0 || count < maxCount ? nextCommit() : null;
+            } catch (IOException e) {
+                release();
+                throw new IllegalStateException(e);
+            }
+            if (nextCommit == null) {
+                release();
+            }
+        }
+        return nextCommit != null;
+    }
+
+    /** Next commit accepted by filter */
+    private RevCommit nextCommit() throws IOException {
+        if (!firstParent) {
+            return walk.next();
+        }
+        if (chain == null) {
+            // history of since is not returned, its bodies are not kept
+            chain = new FirstParentChain(walk, reader, start, since);
+        }
+        try {
+            for (RevCommit commit = chain.next(); commit != null; commit = chain.next()) {
+                if (filter == null || filter.include(walk, commit)) {
+                    return commit;
+                }
+            }
+        } catch (StopWalkException e) {
+            // filter ends walk
+        }
+        return null;
+    }
+
+    @Override
+    public CommitRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        RevCommit commit = nextCommit;
+        nextCommit = null;
+        count++;
+        try {
+            byte[] raw = bodyReader.takeBody(commit);
+            if (raw == null) {
+                raw = reader.open(commit, Constants.OBJ_COMMIT).getCachedBytes();
+            }
+            return new CommitRecord(commit.copy(), getAuthorName(raw), commit.getCommitTime(), getShortMessage(raw));
+        } catch (IOException e) {
+            release();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+
+    /** Release walk and reader, called after last commit */
+    public void release() {
+        if (!released) {
+            released = true;
+            walk.release();
+            reader.release();
+        }
+    }
+
+    /** Reader of walk, keeps raw commits read by walk until they are taken */
+    private static class BodyReader extends ObjectReader {
+        private final ObjectReader reader;
+        private final Map<ObjectId, byte[]> bodies = new HashMap<ObjectId, byte[]>();
+
+        BodyReader(ObjectReader reader) {
+            this.reader = reader;
+        }
+
+        /** Raw commit read by walk, null if not read or already taken */
+        byte[] takeBody(AnyObjectId commit) {
+            return bodies.remove(commit);
+        }
+
+        @Override
+        public ObjectLoader open(AnyObjectId objectId, int typeHint) throws IOException {
+            ObjectLoader loader = reader.open(objectId, typeHint);
+            if (loader.getType() != Constants.OBJ_COMMIT) {
+                return loader;
+            }
+            byte[] raw = loader.getCachedBytes();
+            bodies.put(objectId.copy(), raw);
+            return new ObjectLoader.SmallObject(Constants.OBJ_COMMIT, raw);
+        }
+
+        @Override
+        public ObjectReader newReader() {
+            return reader.newReader();
+        }
+
+        @Override
+        public Collection<ObjectId> resolve(AbbreviatedObjectId id) throws IOException {
+            return reader.resolve(id);
+        }
+
+        @Override
+        public Set<ObjectId> getShallowCommits() throws IOException {
+            return reader.getShallowCommits();
+        }
+
+        @Override
+        public void walkAdviceBeginCommits(RevWalk revWalk, Collection<RevCommit> roots) throws IOException {
+            reader.walkAdviceBeginCommits(revWalk, roots);
+        }
+
+        @Override
+        public void walkAdviceEnd() {
+            reader.walkAdviceEnd();
+        }
+
+        @Override
+        public void release() {
+            bodies.clear();
+        }
+    }
+
+    private static String getAuthorName(byte[] raw) {
+        int nameB = RawParseUtils.author(raw, 0);
+        if (nameB < 0) {
+            return null;
+        }
+        PersonIdent author = RawParseUtils.parsePersonIdent(raw, nameB);
+        return author == null ? null : author.getName();
+    }
+
+    /** First paragraph of message in one line, as RevCommit.getShortMessage */
+    private static String getShortMessage(byte[] raw) {
+        int msgB = RawParseUtils.commitMessage(raw, 0);
+        if (msgB < 0) {
+            return "";
+        }
+        Charset encoding = RawParseUtils.parseEncoding(raw);
+        int msgE = RawParseUtils.endOfParagraph(raw, msgB);
+        String message = RawParseUtils.decode(encoding, raw, msgB, msgE);
+        for (int i = msgB; i < msgE; i++) {
+            if (raw[i] == '\n') {
+                return StringUtils.replaceLineBreaksWithSpace(message);
+            }
+        }
+        return message;
+    }
+}
@@ -8,5 +8,9 @@ import lombok.Data;
 @Data
 public class CommitsJson {
     private Set<String> branches;
+    /** Superproject and submodules, only if submodules are aggregated */
+    private List<RepositoryDto> repositories;
+    /** Release sections, only if grouped by release */
+    private List<ReleaseDto> releases;
     private List<CommitDto> commits;
 }
@@ -0,0 +1,20 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/** Changed files and lines of commit compared with first parent (as "git diff --stat") */
+@Getter
+@ToString
+public class DiffStat {
+    private final int files;
+    /** Added lines, lines of binary and too big files are not counted */
+    private final int insertions;
+    private final int deletions;
+
+    public DiffStat(int files, int insertions, int deletions) {
+        this.files = files;
+        this.insertions = insertions;
+        this.deletions = deletions;
+    }
+}
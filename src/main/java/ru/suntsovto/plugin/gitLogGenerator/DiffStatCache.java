@@ -0,0 +1,60 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+import org.eclipse.jgit.lib.ObjectId;
+
+/**
+ * Diff stat of commits by commit id, stored in append-only file of fixed size records (id, files, insertions, deletions).
+ * One instance per file in JVM (recently opened files), shared by modules of build and next builds: each commit is diffed once.
+ * Result depends on diff options, so options are part of file name
+ */
+public class DiffStatCache extends CommitRecordFile<DiffStat> {
+    /** Files, insertions, deletions */
+    private static final int VALUE_SIZE = 3 * 4;
+    private static final Map<String, DiffStatCache> CACHES = openFiles();
+
+    private DiffStatCache(File file) {
+        super(file);
+    }
+
+    /**
+     * Cache in folder for diff options, records added by other processes are read
+     * @param maxBlobSize option of diff, negative - no limit
+     */
+    public static synchronized DiffStatCache open(File folder, boolean detectRenames, long maxBlobSize) throws IOException {
+        File file = new File(folder, "diffstat-" + (detectRenames ? "renames" : "norenames") + "-" + Math.max(-1, maxBlobSize) + ".bin");
+        String key = file.getCanonicalPath();
+        DiffStatCache cache = CACHES.get(key);
+        if (cache == null) {
+            cache = new DiffStatCache(file);
+            CACHES.put(key, cache);
+        }
+        cache.readTail();
+        return cache;
+    }
+
+    /** Add stat of commit, written to file later */
+    public void put(ObjectId commit, DiffStat stat) throws IOException {
+        add(commit, stat);
+    }
+
+    @Override
+    protected void writeValue(DataOutputStream out, DiffStat stat) throws IOException {
+        out.writeInt(stat.getFiles());
+        out.writeInt(stat.getInsertions());
+        out.writeInt(stat.getDeletions());
+    }
+
+    @Override
+    protected DiffStat readValue(ByteBuffer buffer) {
+        if (buffer.remaining() < VALUE_SIZE) {
+            return null;
+        }
+        return new DiffStat(buffer.getInt(), buffer.getInt(), buffer.getInt());
+    }
+}
@@ -0,0 +1,141 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.diff.RenameDetector;
+import org.eclipse.jgit.lib.AbbreviatedObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.NullProgressMonitor;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+/**
+ * Diff stat of commits, called by several threads (workers of dto conversion).
+ * Each thread has own object reader, released by release(). Merge commit is compared with first parent,
+ * lines of binary files and blobs bigger than limit are not counted (file is counted)
+ */
+public class DiffStatCalculator {
+    private final Repository repo;
+    private final boolean detectRenames;
+    /** Negative - no limit */
+    private final long maxBlobSize;
+    /** Null - stats are not stored */
+    private final DiffStatCache cache;
+    private final List<ObjectReader> readers = new ArrayList<ObjectReader>();
+    private final ThreadLocal<ObjectReader> threadReader = new ThreadLocal<ObjectReader>() {
+        @Override
+        protected ObjectReader initialValue() {
+            ObjectReader reader = repo.newObjectReader();
+            synchronized (readers) {
+                readers.add(reader);
+            }
+            return reader;
+        }
+    };
+
+    public DiffStatCalculator(Repository repo, boolean detectRenames, long maxBlobSize, DiffStatCache cache) {
+        this.repo = repo;
+        this.detectRenames = detectRenames;
+        this.maxBlobSize = maxBlobSize;
+        this.cache = cache;
+    }
+
+    /** Stat from cache or by diff with first parent */
+    public DiffStat get(ObjectId commit) throws IOException {
+        DiffStat stat = cache == null ? null : cache.get(commit);
+        if (stat == null) {
+            stat = compute(threadReader.get(), commit);
+            if (cache != null) {
+                cache.put(commit, stat);
+            }
+        }
+        return stat;
+    }
+
+    /** Write new stats to cache file and release readers of all threads */
+    public void release() throws IOException {
+        synchronized (readers) {
+            for (ObjectReader reader : readers) {
+                reader.release();
+            }
+            readers.clear();
+        }
+        if (cache != null) {
+            cache.flush();
+        }
+    }
+
+    private DiffStat compute(ObjectReader reader, ObjectId id) throws IOException {
+        // walks are not released: reader belongs to thread
+        RevWalk walk = new RevWalk(reader);
+        RevCommit commit = walk.parseCommit(id);
+        TreeWalk treeWalk = new TreeWalk(reader);
+        treeWalk.setRecursive(true);
+        treeWalk.setFilter(TreeFilter.ANY_DIFF);
+        if (commit.getParentCount() == 0) {
+            treeWalk.addTree(new EmptyTreeIterator());
+        } else {
+            treeWalk.addTree(walk.parseCommit(commit.getParent(0)).getTree());
+        }
+        treeWalk.addTree(commit.getTree());
+        List<DiffEntry> entries = DiffEntry.scan(treeWalk);
+        if (detectRenames) {
+            RenameDetector renameDetector = new RenameDetector(repo);
+            renameDetector.addAll(entries);
+            entries = renameDetector.compute(reader, NullProgressMonitor.INSTANCE);
+        }
+
+        int insertions = 0;
+        int deletions = 0;
+        for (DiffEntry entry : entries) {
+            if (entry.getOldId().equals(entry.getNewId())) {
+                // rename or mode change without content change
+                continue;
+            }
+            RawText oldText = getText(reader, entry.getOldId(), entry.getOldMode());
+            RawText newText = oldText == null ? null : getText(reader, entry.getNewId(), entry.getNewMode());
+            if (newText == null) {
+                continue;
+            }
+            EditList edits = DiffAlgorithm.getAlgorithm(DiffAlgorithm.SupportedAlgorithm.HISTOGRAM)
+                    .diff(RawTextComparator.DEFAULT, oldText, newText);
+            for (Edit edit : edits) {
+                deletions += edit.getLengthA();
+                insertions += edit.getLengthB();
+            }
+        }
+        return new DiffStat(entries.size(), insertions, deletions);
+    }
+
+    /** Text of blob, empty for added/deleted side, null if lines are not counted (binary, too big, submodule) */
+    private RawText getText(ObjectReader reader, AbbreviatedObjectId id, FileMode mode) throws IOException {
+        if (mode == FileMode.MISSING) {
+            return RawText.EMPTY_TEXT;
+        }
+        if (mode.getObjectType() != Constants.OBJ_BLOB) {
+            return null;
+        }
+        ObjectId blob = id.toObjectId();
+        long size = reader.getObjectSize(blob, Constants.OBJ_BLOB);
+        if ((maxBlobSize >= 0 && size > maxBlobSize) || size > Integer.MAX_VALUE) {
+            return null;
+        }
+        byte[] content = reader.open(blob, Constants.OBJ_BLOB).getCachedBytes((int) size);
+        return RawText.isBinary(content) ? null : new RawText(content);
+    }
+}
@@ -0,0 +1,110 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.math.NumberUtils;
+
+/**
+ * Fingerprint of output files (HEAD, branches, params, templates) with maven environment parameters.
+ * Output files are not created again if fingerprint is not changed
+ */
+public class Fingerprint {
+    private static final String FINGERPRINT = "fingerprint";
+    private static final String PAGES = "pages";
+
+    private final File file;
+    /** Count of html pages of previous build, read with fingerprint */
+    private int pages;
+
+    public Fingerprint(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Fingerprint in cache folder for output files by their name and canonical folder:
+     * modules with one cache folder and the same file name do not replace fingerprint of each other
+     */
+    public static Fingerprint forOutput(File cacheFolder, File outputFolder, String outputFileName) throws IOException {
+        String folderHash = hash(Collections.singletonList(outputFolder.getCanonicalPath())).substring(0, 12);
+        return new Fingerprint(new File(cacheFolder, outputFileName + "-" + folderHash + ".fingerprint"));
+    }
+
+    /** SHA-1 of values */
+    public static String hash(List<String> values) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            for (String value : values) {
+                digest.update(String.valueOf(value).getBytes("utf-8"));
+                digest.update((byte) 0);
+            }
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest.digest()) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /** Stored maven environment parameters if stored fingerprint is equal, else null */
+    public Properties read(String fingerprint) {
+        if (!file.isFile()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        InputStream is = null;
+        try {
+            is = FileUtils.openInputStream(file);
+            properties.load(is);
+        } catch (IOException e) {
+            return null;
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+        if (!fingerprint.equals(properties.getProperty(FINGERPRINT))) {
+            return null;
+        }
+        properties.remove(FINGERPRINT);
+        pages = NumberUtils.toInt((String) properties.remove(PAGES));
+        return properties;
+    }
+
+    /** Count of html pages stored with equal fingerprint, 0 - no pages */
+    public int getPages() {
+        return pages;
+    }
+
+    /** @param pages count of html pages (files are checked by next build), 0 - no pages */
+    public void write(String fingerprint, Map<String, String> environment, int pages) throws IOException {
+        Properties properties = new Properties();
+        properties.putAll(environment);
+        properties.setProperty(FINGERPRINT, fingerprint);
+        if (pages > 0) {
+            properties.setProperty(PAGES, String.valueOf(pages));
+        }
+        OutputStream os = FileUtils.openOutputStream(file);
+        try {
+            properties.store(os, "gitlog-plugin");
+        } finally {
+            IOUtils.closeQuietly(os);
+        }
+    }
+
+    public void delete() {
+        FileUtils.deleteQuietly(file);
+    }
+}
@@ -0,0 +1,84 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.io.IOException;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevFlag;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+/**
+ * Commits of first parent chain from head (as "git log --first-parent"): only the first parent of commit is parsed,
+ * side branches of merges are not walked, so work is proportional to count of commits read.
+ * Chain ends at commit reachable from "since" (as "git log --first-parent head ^since"): commits of head ^since
+ * are walked lazily with since marked uninteresting, only until current chain commit is walked or marked uninteresting.
+ * Commit time is only the order of this walk, chain stops on since itself and its ancestors even with clock skew
+ */
+public class FirstParentChain {
+    private final RevWalk walk;
+    /** Commits of head not reachable from since, null if chain is not limited */
+    private final RevWalk rangeWalk;
+    /** Commit returned by rangeWalk */
+    private final RevFlag walked;
+    private RevCommit next;
+
+    /**
+     * @param walk commits are parsed by this walk (body is kept by its retainBody)
+     * @param since chain stops at commit reachable from it, null - to root commit
+     */
+    public FirstParentChain(RevWalk walk, ObjectId head, ObjectId since) throws IOException {
+        this(walk, walk.getObjectReader(), head, since);
+    }
+
+    /** @param rangeReader reader of commits of head ^since (not released) */
+    public FirstParentChain(RevWalk walk, ObjectReader rangeReader, ObjectId head, ObjectId since) throws IOException {
+        this.walk = walk;
+        this.next = walk.lookupCommit(head);
+        if (since == null) {
+            rangeWalk = null;
+            walked = null;
+        } else {
+            // walk is not released: reader belongs to caller
+            rangeWalk = new RevWalk(rangeReader);
+            rangeWalk.setRetainBody(false);
+            walked = rangeWalk.newFlag("walked");
+            rangeWalk.markStart(rangeWalk.parseCommit(head));
+            rangeWalk.markUninteresting(rangeWalk.parseCommit(since));
+        }
+    }
+
+    /** Next commit of chain, null at the end */
+    public RevCommit next() throws IOException {
+        RevCommit commit = next;
+        if (commit == null) {
+            return null;
+        }
+        walk.parseHeaders(commit);
+        if (isReachableFromSince(commit)) {
+            next = null;
+            return null;
+        }
+        next = commit.getParentCount() > 0 ? commit.getParent(0) : null;
+        return commit;
+    }
+
+    /** Range walk goes on until commit is returned (not reachable) or marked uninteresting, or range ends */
+    private boolean isReachableFromSince(RevCommit commit) throws IOException {
+        if (rangeWalk == null) {
+            return false;
+        }
+        RevCommit rangeCommit = rangeWalk.lookupCommit(commit);
+        while (!rangeCommit.has(walked)) {
+            if (rangeCommit.has(RevFlag.UNINTERESTING)) {
+                return true;
+            }
+            RevCommit walkedCommit = rangeWalk.next();
+            if (walkedCommit == null) {
+                return true;
+            }
+            walkedCommit.add(walked);
+        }
+        return false;
+    }
+}
@@ -3,9 +3,25 @@ package ru.suntsovto.plugin.gitLogGenerator;
 public enum FormatEnum {
     TXT,
     JSON,
+    /** Json object of commit on each line */
+    NDJSON,
     HTML;
-    
+
+    /** Suffix of format for gzip compressed file: json.gz, ndjson.gz, txt.gz */
+    public static final String GZIP_SUFFIX = ".gz";
+
+    /** Format without gzip suffix is equal to this */
     public boolean is(String value){
-        return value != null && value.trim().equalsIgnoreCase(name());
-    } 
+        return value != null && getBaseFormat(value).equalsIgnoreCase(name());
+    }
+
+    public static boolean isGzip(String value){
+        return value != null && value.trim().toLowerCase().endsWith(GZIP_SUFFIX);
+    }
+
+    /** Format without gzip suffix */
+    public static String getBaseFormat(String value){
+        String format = value.trim();
+        return isGzip(format) ? format.substring(0, format.length() - GZIP_SUFFIX.length()) : format;
+    }
 }
@@ -0,0 +1,85 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.io.File;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Changelog from command line without maven, params as in plugin config:
+ * java -cp {plugin jar and dependencies} ru.suntsovto.plugin.gitLogGenerator.GitLogCli formats=txt,json countCommits=100
+ * Git folder is searched from current folder. Errors stop with exit code 1 (param silent is false by default).
+ * Not set cacheFolder, indexFolder, changedPathCache and diffStatCacheFolder are in folder gitlog of git folder,
+ * empty value turns off fingerprint, index and caches
+ */
+public class GitLogCli {
+
+    private GitLogCli() {
+    }
+
+    public static void main(String[] args) {
+        GitLogConfig config;
+        try {
+            config = parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("gitlog: " + e.getMessage());
+            System.err.println("usage: GitLogCli [name=value]... (params of maven plugin: gitFolder, formats, templateLine, countCommits...)");
+            System.exit(2);
+            return;
+        }
+
+        File basedir = new File(".").getAbsoluteFile();
+        setDefaultFolders(config, basedir);
+        ChangelogGenerator generator = new ChangelogGenerator(config);
+        generator.setBasedir(basedir);
+        try {
+            generator.generate();
+        } catch (RuntimeException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
+        if (config.isTrace()) {
+            System.out.println("gitlog: " + generator.getMetricsSummary());
+        }
+    }
+
+    /** Config by args name=value (or --name=value) */
+    static GitLogConfig parse(String[] args) {
+        GitLogConfig config = new GitLogConfig();
+        config.setSilent(false);
+        for (String arg : args) {
+            String param = arg.startsWith("--") ? arg.substring(2) : arg;
+            int separator = param.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("param is not name=value: " + arg);
+            }
+            config.set(param.substring(0, separator), param.substring(separator + 1));
+        }
+        return config;
+    }
+
+    /** Folders for files between runs, without maven there is no build folder for them */
+    static void setDefaultFolders(GitLogConfig config, File basedir) {
+        if (config.getCacheFolder() != null && config.getIndexFolder() != null
+                && config.getChangedPathCache() != null && config.getDiffStatCacheFolder() != null) {
+            return;
+        }
+        File gitDir = StringUtils.isNotEmpty(config.getGitFolder()) ? new File(config.getGitFolder()) : RepositoryPool.findGitDir(basedir);
+        if (gitDir == null) {
+            // reported by generator
+            return;
+        }
+        File folder = new File(gitDir, "gitlog");
+        if (config.getCacheFolder() == null) {
+            config.setCacheFolder(folder.getPath());
+        }
+        if (config.getIndexFolder() == null) {
+            config.setIndexFolder(new File(folder, "index").getPath());
+        }
+        if (config.getChangedPathCache() == null) {
+            config.setChangedPathCache(new File(folder, "changed-paths.bin").getPath());
+        }
+        if (config.getDiffStatCacheFolder() == null) {
+            config.setDiffStatCacheFolder(folder.getPath());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import lombok.Data;
+
+/**
+ * Parameters of changelog, the same names and default values as params of maven plugin (see GitLogGenerator and README).
+ * Default values with maven properties: cacheFolder, indexFolder, changedPathCache and diffStatCacheFolder are not set
+ * (no cache without build folder), GitLogCli sets them in git folder
+ */
+@Data
+public class GitLogConfig {
+    /** Folder .git, null - search from basedir of generator */
+    private String gitFolder;
+    private String outputFolder = "target/generated-resources/resources";
+    private String outputFileName = "CHANGELOG";
+    private String formats = "txt";
+    private Integer countCommits = 10;
+    private String refNamespaces = "refs/heads,refs/remotes,refs/tags";
+    private boolean shareWalkResults;
+    private String cacheFolder;
+    private boolean skipUnchanged;
+    private boolean useCommitIndex;
+    private String indexFolder;
+    private String metricsReport;
+    private int dtoThreads = 1;
+    private boolean lowMemoryWalk;
+    private String sinceRef;
+    private String untilRef;
+    private boolean sinceLatestTag;
+    private boolean firstParent;
+    private boolean noMerges;
+    private boolean modulePathFilter;
+    private String paths;
+    private String changedPathCache;
+    private boolean prettyJson = true;
+    private boolean groupByRelease;
+    private boolean includeSubmodules;
+    private String submoduleOrder = "time";
+    private int submoduleThreads = 4;
+    private boolean diffStatInJson;
+    private int diffThreads;
+    private boolean detectRenames = true;
+    private long maxDiffBlobSize = 1048576;
+    private String diffStatCacheFolder;
+    private int repositoryIdleTimeout = 600;
+    private String templateLine = "%ad %h %an %s";
+    private String addCurrentBranchFirstLine = "true";
+    private boolean useInternalTemplate = true;
+    private boolean internalTemplateOnlyTable = true;
+    private int htmlPageSize;
+    private String gitLabUrl;
+    private String bugTrackingUrl;
+    private String regExpIssueNumber = "^(.[^\\s]+)\\s*.*";
+    private boolean silent = true;
+    private boolean trace;
+    private String templateFile;
+
+    /** Set param by name from text value (command line), IllegalArgumentException if param is unknown or value is not valid */
+    public void set(String name, String value) {
+        Field field;
+        try {
+            field = GitLogConfig.class.getDeclaredField(name);
+        } catch (NoSuchFieldException e) {
+            throw new IllegalArgumentException("unknown param: " + name);
+        }
+        if (Modifier.isStatic(field.getModifiers())) {
+            throw new IllegalArgumentException("unknown param: " + name);
+        }
+
+        Object converted;
+        Class<?> type = field.getType();
+        try {
+            if (type == String.class) {
+                converted = value;
+            } else if (type == Integer.class || type == int.class) {
+                converted = Integer.valueOf(value.trim());
+            } else if (type == long.class) {
+                converted = Long.valueOf(value.trim());
+            } else if (type == boolean.class) {
+                converted = toBoolean(name, value);
+            } else {
+                throw new IllegalArgumentException("unknown param: " + name);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("param " + name + " is not a number: " + value);
+        }
+
+        try {
+            field.set(this, converted);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean toBoolean(String name, String value) {
+        if ("true".equalsIgnoreCase(value.trim())) {
+            return true;
+        }
+        if ("false".equalsIgnoreCase(value.trim())) {
+            return false;
+        }
+        throw new IllegalArgumentException("param " + name + " is not true/false: " + value);
+    }
+}
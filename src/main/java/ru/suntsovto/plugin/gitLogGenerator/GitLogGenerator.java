@@ -1,58 +1,33 @@
 package ru.suntsovto.plugin.gitLogGenerator;
 
-import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.StringWriter;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
-import java.util.Properties;
-import java.util.Set;
-import java.util.TimeZone;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang.StringUtils;
+
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
-import org.apache.velocity.Template;
-import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.Velocity;
-import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.LogCommand;
-import org.eclipse.jgit.api.errors.GitAPIException;
-import org.eclipse.jgit.internal.storage.file.FileRepository;
-import org.eclipse.jgit.lib.ObjectId;
-import org.eclipse.jgit.lib.Ref;
-import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.revwalk.RevCommit;
 
 /**
  * Create text/html/json file with commits
  * Parameter add to maven environment - git.branch, git.commit.hash, git.commit.date
+ * Params are passed to ChangelogGenerator, the same generator is run without maven by GitLogCli
  */
-@Mojo(name = "generate", defaultPhase = LifecyclePhase.GENERATE_RESOURCES)
+@Mojo(name = "generate", defaultPhase = LifecyclePhase.GENERATE_RESOURCES, threadSafe = true)
 public class GitLogGenerator extends AbstractMojo {
     
     @Parameter(defaultValue = "${project}", required = true, readonly = true)
     private MavenProject project;
+
+    /** Build session, scope of walk results shared by modules */
+    @Parameter(defaultValue = "${session}", readonly = true)
+    private Object session;
     
     /** 
      * Folder .git for extract info
      * 
-     * Default value: search in the root directory of the project, then in the parent directory and above.
+     * Default value: search in the base directory of the project, then in the parent directory and above.
+     * File .git of submodule or worktree (gitdir: path) is resolved
      */
     @Parameter(property = "gitFolder")
     private String gitFolder;
@@ -95,6 +70,261 @@ public class GitLogGenerator extends AbstractMojo {
     @Parameter(property = "countCommits", defaultValue = "10")
     private Integer countCommits;
 
+    /**
+     * Ref namespaces for search current branch when checkout by commit (detached HEAD)
+     * Refs from other namespaces (refs/pull, refs/changes...) are not read
+     *
+     * Default value: refs/heads,refs/remotes,refs/tags
+     */
+    @Parameter(property = "refNamespaces", defaultValue = "refs/heads,refs/remotes,refs/tags")
+    private String refNamespaces = "refs/heads,refs/remotes,refs/tags";
+
+    /**
+     * Share commit walk between modules of build with the same git folder, HEAD and walk params.
+     * Modules after first only create output files.
+     * Commits of walk (countCommits, all with -1) are kept in memory until end of build, output is not streamed from walk
+     *
+     * Default value: false
+     */
+    @Parameter(property = "shareWalkResults", defaultValue = "false")
+    private boolean shareWalkResults;
+
+    /**
+     * Folder for plugin files between builds (fingerprint of output files)
+     *
+     * Default value: ${project.build.directory}/gitlog
+     */
+    @Parameter(property = "cacheFolder", defaultValue = "${project.build.directory}/gitlog")
+    private String cacheFolder;
+
+    /**
+     * Skip commit walk and output files if HEAD, branches, params and template are not changed since previous build.
+     * Maven environment parameters are restored from previous build
+     *
+     * Default value: false
+     */
+    @Parameter(property = "skipUnchanged", defaultValue = "false")
+    private boolean skipUnchanged;
+
+    /**
+     * Read commits from index in indexFolder instead of walk of repository.
+     * Index is created by first build (full history) and then only commits after last indexed commit are added.
+     * Useful for large history and big countCommits
+     *
+     * Default value: false
+     */
+    @Parameter(property = "useCommitIndex", defaultValue = "false")
+    private boolean useCommitIndex;
+
+    /**
+     * Folder for commit index. Default folder is in each module: in multi-module build set one folder for all modules
+     * in root project (for example ${session.executionRootDirectory}/target/gitlog/index), so history is indexed once
+     *
+     * Default value: ${project.build.directory}/gitlog/index
+     */
+    @Parameter(property = "indexFolder", defaultValue = "${project.build.directory}/gitlog/index")
+    private String indexFolder;
+
+    /**
+     * File for json report with time, allocated bytes and counters of plugin phases.
+     * Metrics are always written to maven environment (git.log.metrics.*), summary to build log
+     * at info level if report or trace is set, at debug level otherwise
+     *
+     * Default value: not specified, report is not written
+     */
+    @Parameter(property = "metricsReport")
+    private String metricsReport;
+
+    /**
+     * Threads for conversion of commits to output lines (dates, issue links, urls).
+     * Commits are read from repository by one thread and converted in batches, order of commits is kept.
+     * 1 - conversion in build thread, 0 - count of processors
+     *
+     * Default value: 1
+     */
+    @Parameter(property = "dtoThreads", defaultValue = "1")
+    private int dtoThreads = 1;
+
+    /**
+     * Walk keeps only commit headers, author and first line of message are read from commit and buffer is dropped.
+     * Much less memory for full history (countCommits = -1)
+     *
+     * Default value: false
+     */
+    @Parameter(property = "lowMemoryWalk", defaultValue = "false")
+    private boolean lowMemoryWalk;
+
+    /**
+     * Ref (tag, branch, commit) of the previous release: commits reachable from it are not written.
+     * Walk stops at this commit, countCommits still limits count of commits
+     *
+     * Default value: not specified
+     */
+    @Parameter(property = "sinceRef")
+    private String sinceRef;
+
+    /**
+     * Ref (tag, branch, commit) of the last commit written
+     *
+     * Default value: HEAD
+     */
+    @Parameter(property = "untilRef")
+    private String untilRef;
+
+    /**
+     * Commits since the latest tag reachable from untilRef/HEAD (tags on this commit are skipped), used if sinceRef is not specified.
+     * Changelog of release: commits after previous release tag
+     *
+     * Default value: false
+     */
+    @Parameter(property = "sinceLatestTag", defaultValue = "false")
+    private boolean sinceLatestTag;
+
+    /**
+     * Only first parent of each commit is walked (as "git log --first-parent"): trunk with merge of each pull request
+     * gives merges and direct commits, side branches are not read. Release of commit (groupByRelease) - by tags of the chain
+     *
+     * Default value: false
+     */
+    @Parameter(property = "firstParent", defaultValue = "false")
+    private boolean firstParent;
+
+    /**
+     * Merge commits are not written (as "git log --no-merges"), countCommits is count of other commits
+     *
+     * Default value: false
+     */
+    @Parameter(property = "noMerges", defaultValue = "false")
+    private boolean noMerges;
+
+    /**
+     * Only commits changing files of module (project base folder), for modules of monorepo.
+     * Root module (base folder is work tree) has all commits
+     *
+     * Default value: false
+     */
+    @Parameter(property = "modulePathFilter", defaultValue = "false")
+    private boolean modulePathFilter;
+
+    /**
+     * Only commits changing these paths (relative to work tree, separated by commas), used instead of modulePathFilter
+     *
+     * Default value: not specified
+     */
+    @Parameter(property = "paths")
+    private String paths;
+
+    /**
+     * File with changed paths of commits (bloom filters), used by path filter. Filled once for all modules and builds
+     * with the same file (set it to the same folder for all modules, for example in build folder of root project),
+     * empty - not stored
+     *
+     * Default value: ${project.build.directory}/gitlog/changed-paths.bin
+     */
+    @Parameter(property = "changedPathCache", defaultValue = "${project.build.directory}/gitlog/changed-paths.bin")
+    private String changedPathCache;
+
+    /**
+     * Json file with indents and line breaks, false - compact json (smaller file)
+     *
+     * Default value: true
+     */
+    @Parameter(property = "prettyJson", defaultValue = "true")
+    private boolean prettyJson = true;
+
+    /**
+     * Commits grouped by release: release of commit is the earliest tag containing it, commits after the latest tag are first.
+     * Txt file has header line "Release: tag" before commits of release, json file and html template have "releases"
+     * (tag, hash, date, count), token %release - tag of commit.
+     * Commits are read by one walk (stopped at countCommits) before output files are written.
+     * Params shareWalkResults, useCommitIndex and includeSubmodules are not used with it (warning)
+     *
+     * Default value: false
+     */
+    @Parameter(property = "groupByRelease", defaultValue = "false")
+    private boolean groupByRelease;
+
+    /**
+     * One changelog of superproject and its submodules (gitlinks of index, paths and urls from .gitmodules).
+     * Submodules are walked in parallel from their HEAD. sinceRef, untilRef, paths and commit index are applied to superproject only.
+     * Json file has "repositories" with HEAD and branches of each repository, token %repo - path of submodule
+     *
+     * Default value: false
+     */
+    @Parameter(property = "includeSubmodules", defaultValue = "false")
+    private boolean includeSubmodules;
+
+    /**
+     * Order of commits with submodules
+     *    time  - commits of all repositories by commit time, countCommits - count of all commits
+     *    group - commits of superproject, then commits of each submodule, countCommits - count for each repository
+     *
+     * Default value: time
+     */
+    @Parameter(property = "submoduleOrder", defaultValue = "time")
+    private String submoduleOrder = "time";
+
+    /**
+     * Threads for walks of submodules, 0 - count of processors
+     *
+     * Default value: 4
+     */
+    @Parameter(property = "submoduleThreads", defaultValue = "4")
+    private int submoduleThreads = 4;
+
+    /**
+     * Changed files and lines (files, insertions, deletions) in json files.
+     * Txt and html files have diff stat if tokens %files, %insertions, %deletions are used in template
+     * (html template also if commit is used not by property: macro argument, #set, method with arguments)
+     *
+     * Default value: false
+     */
+    @Parameter(property = "diffStatInJson", defaultValue = "false")
+    private boolean diffStatInJson;
+
+    /**
+     * Threads for diff of commits when diff stat is used, each thread reads objects by own reader.
+     * 0 - count of processors
+     *
+     * Default value: 0
+     */
+    @Parameter(property = "diffThreads", defaultValue = "0")
+    private int diffThreads;
+
+    /**
+     * Renamed file is one changed file and its lines are compared with old file, otherwise delete and add
+     *
+     * Default value: true
+     */
+    @Parameter(property = "detectRenames", defaultValue = "true")
+    private boolean detectRenames = true;
+
+    /**
+     * Lines of bigger files (bytes) are not counted in diff stat, file is counted. -1 - no limit
+     *
+     * Default value: 1048576
+     */
+    @Parameter(property = "maxDiffBlobSize", defaultValue = "1048576")
+    private long maxDiffBlobSize = 1048576;
+
+    /**
+     * Folder for diff stat of commits (of superproject and submodules), computed once for all modules and builds
+     * with the same folder, empty - not stored
+     *
+     * Default value: ${project.build.directory}/gitlog
+     */
+    @Parameter(property = "diffStatCacheFolder", defaultValue = "${project.build.directory}/gitlog")
+    private String diffStatCacheFolder;
+
+    /**
+     * Opened repository is kept in JVM this time (seconds) after build: next build in maven daemon (mvnd)
+     * does not open repository and read pack indexes again. 0 - repository is closed after build
+     *
+     * Default value: 600
+     */
+    @Parameter(property = "repositoryIdleTimeout", defaultValue = "600")
+    private int repositoryIdleTimeout = 600;
+
     // ------ FOR TXT FILE ---------
     /**
      * Format single line for param "outputFileFormat" = txt
@@ -103,6 +333,8 @@ public class GitLogGenerator extends AbstractMojo {
      * %an - author name  
      * %ad - author date  
      * %s  - message
+     * %repo - path of submodule ("." - superproject), see param "includeSubmodules"
+     * %files, %insertions, %deletions - changed files and lines, diff with first parent
      * 
      * Default value: %ad %h %an %s
      * Example: 2021-03-08 14:31:52 7d0ab294 tsuntsov JIRA-123 simples by picture
@@ -140,6 +372,17 @@ public class GitLogGenerator extends AbstractMojo {
      */
     @Parameter(property = "internalTemplateOnlyTable", defaultValue = "true")
     private boolean internalTemplateOnlyTable = false;
+
+    /**
+     * Commits on one html page. Output html file is index page with links to pages (CHANGELOG-1.html, CHANGELOG-2.html...),
+     * pages are rendered in parallel by the same template (internal or user). Template gets navigation to index, previous
+     * and next page: $indexPage, $previousPage, $nextPage (null if no page) and page number $page.
+     * 0 - all commits in one html file
+     *
+     * Default value: 0
+     */
+    @Parameter(property = "htmlPageSize", defaultValue = "0")
+    private int htmlPageSize;
     
     /**
      * Url git lab for add link in table commit (by hash)
@@ -202,330 +445,80 @@ public class GitLogGenerator extends AbstractMojo {
      *      внутри использовать параметры так же как в строке, но без % (например: commit.an). Исключение полный хэш - Hash
      *   #end
      *
+     * "commits" is list (size, get, several loops), all commits are read to memory before file is written.
+     * "commitStream" is read while file is written and can be iterated once (internal templates):
+     * check empty by $commitStream.hasNext(), $commitStream.size() is -1 if count is not known
      */
     @Parameter(property = "templateFile", defaultValue = "")
     private String templateFile;
     
-    private Pattern pattern;
-    private SimpleDateFormat simpleDateFormat;
-    
-    private void init() throws IOException {
-        if (StringUtils.isNotEmpty(regExpIssueNumber)){
-            pattern = Pattern.compile(regExpIssueNumber);
-        }
-        simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-        simpleDateFormat.setTimeZone(TimeZone.getTimeZone("Etc/GMT"));
-        
-        validateConfig();
-    }
-
-    private void validateConfig() throws IOException {
-        // init git folder
-        if (StringUtils.isEmpty(gitFolder)) {
-            if (new File(".git").exists()){
-                gitFolder = ".git";
-            } else if (new File("../.git").exists()){
-                gitFolder = "../.git";
-            } else if (new File("../../.git").exists()){
-                gitFolder = "../../.git";
-            }
-            trace("found git filder: " + gitFolder);
-        }
-        
-        if (StringUtils.isEmpty(gitLabUrl)){
-            String urlFromRepo = new FileRepository(gitFolder).getConfig().getString("remote", "origin", "url");
-            trace("origin: " + urlFromRepo);
-            gitLabUrl = urlFromRepo + "/commit/";
-        }
-    }
-    
     @Override
     public void execute() {
+        ChangelogGenerator generator = new ChangelogGenerator(createConfig());
+        generator.setBasedir(project.getBasedir());
+        generator.setSession(session);
+        generator.setProjectId(project.getId());
         try {
-            init();
-            
-            // main repo for extract info
-            Repository repo = new FileRepository(gitFolder);
-            
-            // this hash (checkout by commit) or branch name (checkout branch)
-            String fullBranch = repo.getFullBranch();
-            // extract cut branch name from FullBranch
-            Set<String> currentBranches = getCurrentBranches(repo, fullBranch);
-            // add to maven environment parameter
-            addPropertyEnv("git.branch", currentBranches.toString());
-            
-            // get commit list
-            Iterable<RevCommit> logs = getCommitsFromRepo(repo, fullBranch);
-            // commit info to dto
-            List<CommitDto> commitDtoList = createCommitDtoList(logs);
-
-            for (String format : formats.split(",")) {
-                String commitLines = createCommitLines(currentBranches, commitDtoList, format);
-                File file = getOutputFile(format);
-                commitLinesToFile(commitLines, file);
+            generator.generate();
+        } finally {
+            for (Map.Entry<String, String> entry : generator.getProperties().entrySet()) {
+                project.getProperties().setProperty(entry.getKey(), entry.getValue());
             }
-        } catch (Exception e) {
-            error("Error get commits: " + e.getMessage());
-        }
-    }
-
-    private void commitLinesToFile(String commitLines, File file) throws IOException {
-        if (StringUtils.isNotEmpty(commitLines)){
-            FileUtils.writeStringToFile(file, commitLines, "utf-8");
-            trace("Output file created");
-        }
-    }
-
-    private String createCommitLines(Set<String> currentBranches, List<CommitDto> commitDtoList, String format) throws Exception {
-        String commitLines;
-        if (FormatEnum.JSON.is(format)){
-            // json file by internal dto
-            commitLines = createJson(currentBranches, commitDtoList);
-        } else if (FormatEnum.HTML.is(format)){
-            // html file by template (user or internal)
-            commitLines = createHtml(currentBranches, commitDtoList);
-        } else {
-            // other - txt file by templateLine 
-            commitLines = createTxt(currentBranches, templateLine, commitDtoList);
-        }
-        trace(" *** Result *** \n" + commitLines);
-        return commitLines;
-    }
-
-    private File getOutputFile(String format) {
-        File file = new File(outputFolder + File.separator + outputFileName + "." + format.trim());
-        trace("git log write to file " + file.getAbsolutePath());
-
-        if (file.exists()){
-            trace("Output file already exists, try delete");
-            boolean delete = file.delete();
-            if (!delete){
-                error("Output file already exists, delete error. Process terminated");
+            // summary on each build only if metrics are asked for
+            if (metricsReport != null || trace){
+                getLog().info("gitlog: " + generator.getMetricsSummary());
+            } else if (getLog().isDebugEnabled()){
+                getLog().debug("gitlog: " + generator.getMetricsSummary());
             }
         }
-        
-        return file;
-    }
-
-    private List<CommitDto> createCommitDtoList(Iterable<RevCommit> logs) {
-        List<CommitDto> commitDtoList = new ArrayList<CommitDto>();
-        boolean isFirst = true;
-        for (RevCommit commit : logs) {
-            CommitDto commitDto = getCommitDto(commit);
-            if (isFirst){
-                // add to maven environment parameter with head commit
-                addPropertyEnv("git.commit.hash", commitDto.getH());
-                addPropertyEnv("git.commit.date", commitDto.getAd());
-                isFirst = false;
-            }
-            commitDtoList.add(commitDto);
-            trace(commitDto.toString());
-        }
-        return commitDtoList;
-    }
-
-    /** Create JSON string */
-    protected String createJson(Set<String> currentBranches, List<CommitDto> commitDtoList) {
-        trace("create JSON");
-        Gson gson = new GsonBuilder().setPrettyPrinting().create();
-
-        CommitsJson jsonDto = new CommitsJson();
-        jsonDto.setBranches(currentBranches);
-        jsonDto.setCommits(commitDtoList);
-        
-        return gson.toJson(jsonDto);
-    }
-
-    /** Add property to maven environment */
-    private void addPropertyEnv(String name, String value) {
-        project.getProperties().put(name, value);
-        trace("add property: " + name + " = " + value);
-    }
-
-    private CommitDto getCommitDto(RevCommit commit) {
-        CommitDto dto = new CommitDto();
-        dto.setHash(commit.getName());
-        dto.setH(commit.abbreviate(8).name());
-        dto.setAn(commit.getAuthorIdent().getName());
-        dto.setAd(simpleDateFormat.format(new Date(commit.getCommitTime() * 1000L)));
-        String value = commit.getShortMessage().replace("$", "\\$");
-        dto.setS(value);
-        dto.setGitLabUrl(getGitLabUrl(commit.getName()));
-        dto.setIssueUrl(getIssueUrl(value));
-        dto.setSWithUrl(getReplacedIssueNumberToUrl(value));
-        return dto;
-    }
-
-    private Iterable<RevCommit> getCommitsFromRepo(Repository repo, String fullBranch) throws IOException, GitAPIException {
-        Git git = new Git(repo);
-        ObjectId resolve = repo.resolve(fullBranch);
-        LogCommand log = git.log().add(resolve).setMaxCount(countCommits);
-        return log.call();
-    }
-
-    /** Create lines with commit by template file */
-    protected String createHtml(Set<String> currentBranches, List<CommitDto> commitDtoList) throws Exception {
-        trace("create HTML");
-        VelocityContext context = getVelocityContext();
-        context.put("commits", commitDtoList);
-        context.put("currentBranch", currentBranches.toString());
-        StringWriter writer = new StringWriter();
-
-        if (useInternalTemplate){
-            String templateName = internalTemplateOnlyTable ? "templateHtmlTable.vm" : "templateHtml.vm";
-            InputStream resourceAsStream = Thread.currentThread().getContextClassLoader().getResourceAsStream(templateName);
-            if (resourceAsStream == null){
-                error("templateHtmlTable.vm not found");
-                return null;
-            }
-            String templateInternal = IOUtils.toString(resourceAsStream, "utf-8");
-            Velocity.evaluate(context, writer, "", templateInternal);
-        } else {
-            Template template = Velocity.getTemplate(templateFile, "utf-8");
-            template.merge(context, writer);
-        }
-
-        return writer.toString();
-    }
-
-    /** Create lines with commit by template string from plugin config */
-    protected  String createTxt(Set<String> currentBranches, String templateLine, List<CommitDto> commitDtoList) {
-        trace("create TXT");
-        // create pattern for replace 
-        Set<String> tokens = Token.getAllTokenValue();
-        String patternString = "(" + StringUtils.join(tokens, "|") + ")";
-        Pattern pattern = Pattern.compile(patternString);
-        Matcher matcher = pattern.matcher(templateLine);
-
-        // create value map
-        List<Map<String, String>> commitMapList = new ArrayList<Map<String, String>>();
-        for (CommitDto dto : commitDtoList) {
-            commitMapList.add(getCommitInfoMap(dto));
-        }
-        
-        // add Current branch as first line
-        StringBuilder commitLines = new StringBuilder();
-        commitLines.append("Branch: ").append(currentBranches).append("\n");
-        for (Map<String, String> tokenToValueMap : commitMapList) {
-            StringBuffer line = new StringBuffer();
-            while(matcher.find()) {
-                matcher.appendReplacement(line, tokenToValueMap.get(matcher.group(1)));
-            }
-            matcher.appendTail(line);
-            commitLines.append(line).append("\n");
-            matcher.reset();
-        }
-        
-        return commitLines.toString();
-    }
-
-    /** Magic code... I don't remember the reasons */
-    private Set<String> getCurrentBranches(Repository repo, String fullBranch) {
-        Set<String> currentBranches = new HashSet<String>();
-        for (Map.Entry<String, Ref> entry : repo.getAllRefs().entrySet()) {
-            String hash = entry.getValue().getObjectId().getName();
-            if (fullBranch.equals(entry.getKey()) || fullBranch.equals(hash)){
-                String branch = entry.getKey();
-                branch = branch.replace("refs/", "").replace("remotes/", "").replace("origin/", "").replace("heads/", "");
-                if (!branch.equals("HEAD")){
-                    currentBranches.add(branch);
-                }
-            }
-        }
-        trace("currentBranches: " + currentBranches);
-        return currentBranches;
-    }
-
-    private String getGitLabUrl(String h) {
-        return addEndSlash(gitLabUrl) + h;
-    }
-
-    /** Extract commit info to map by key */
-    private Map<String, String> getCommitInfoMap(CommitDto dto) {
-        Map<String,String> tokens = new HashMap<String,String>();
-        tokens.put(Token.H.getValue(), dto.getHash());
-        tokens.put(Token.h.getValue(), dto.getH());
-        tokens.put(Token.an.getValue(), dto.getAn());
-        tokens.put(Token.ad.getValue(), dto.getAd());
-        tokens.put(Token.s.getValue(), dto.getS());
-        tokens.put(Token.gitLabUrl.getValue(), dto.getGitLabUrl());
-        tokens.put(Token.sWithUrl.getValue(), dto.getSWithUrl());
-        tokens.put(Token.issueUrl.getValue(), dto.getIssueUrl());
-        return tokens;
-    }
-
-    /** Create issue URL by issue number from commit message and "bugTrackingUrl" */
-    public String getIssueUrl(String commitMessage){
-        if (StringUtils.isEmpty(commitMessage) || StringUtils.isEmpty(regExpIssueNumber) || StringUtils.isEmpty(bugTrackingUrl)){
-            return "";
-        }
-
-        try {
-            Matcher matcher = pattern.matcher(commitMessage);
-            if (matcher.find()) {
-                String issueNumber = matcher.group(1);
-                return  addEndSlash(bugTrackingUrl) + issueNumber;
-            }
-        } catch (Exception ex){
-            error("Error create jira url: " + ex.getMessage());
-        }
-
-        return "";
-    }
-
-    /** Replace issue number in commit message */
-    private String getReplacedIssueNumberToUrl(String commitMessage) {
-        if (StringUtils.isEmpty(commitMessage) || StringUtils.isEmpty(regExpIssueNumber) || StringUtils.isEmpty(bugTrackingUrl)){
-            return commitMessage;
-        }
-        
-        String tagATemplate = "<a href=\"" + addEndSlash(bugTrackingUrl) + "%s\">%s</a>";
-        
-        try {
-            Matcher matcher = pattern.matcher(commitMessage);
-            String commitMessageWithTag = commitMessage;
-            while(matcher.find()) {
-                String group = matcher.group(1);
-                String tagA = String.format(tagATemplate, group, group);
-                commitMessageWithTag = commitMessageWithTag.replaceAll(group, tagA);
-            }
-            return commitMessageWithTag;
-        } catch (Exception ex){
-            error("Error create jira url: " + ex.getMessage());
-        }
-        
-        return commitMessage;
-    }
-
-    /** Add slash to end is need */
-    private String addEndSlash(String url){
-        if (StringUtils.isEmpty(url)){
-            return "";
-        }
-        return url.endsWith("/") ? url : url + "/";
-    }
-    
-    private void error(String message) {
-        if (silent){
-            System.err.println(message);
-        } else {
-            throw new RuntimeException("gitlog-plugin: " + message);
-        }
-    }
-
-    private void trace(String str) {
-        if (trace){
-            System.out.println(str);
-        }
     }
 
-    public static VelocityContext getVelocityContext() throws Exception {
-        VelocityContext velocityContext = new VelocityContext();
-        InputStream is = Thread.currentThread().getContextClassLoader().getResourceAsStream("velocity.properties");
-        Properties velocityProperties = new Properties();
-        velocityProperties.load(is);
-        velocityProperties.setProperty("runtime.log.logsystem.log4j.logger", "stdout");
-        Velocity.init(velocityProperties);
-        return velocityContext;
+    private GitLogConfig createConfig() {
+        GitLogConfig config = new GitLogConfig();
+        config.setGitFolder(gitFolder);
+        config.setOutputFolder(outputFolder);
+        config.setOutputFileName(outputFileName);
+        config.setFormats(formats);
+        config.setCountCommits(countCommits);
+        config.setRefNamespaces(refNamespaces);
+        config.setShareWalkResults(shareWalkResults);
+        config.setCacheFolder(cacheFolder);
+        config.setSkipUnchanged(skipUnchanged);
+        config.setUseCommitIndex(useCommitIndex);
+        config.setIndexFolder(indexFolder);
+        config.setMetricsReport(metricsReport);
+        config.setDtoThreads(dtoThreads);
+        config.setLowMemoryWalk(lowMemoryWalk);
+        config.setSinceRef(sinceRef);
+        config.setUntilRef(untilRef);
+        config.setSinceLatestTag(sinceLatestTag);
+        config.setFirstParent(firstParent);
+        config.setNoMerges(noMerges);
+        config.setModulePathFilter(modulePathFilter);
+        config.setPaths(paths);
+        config.setChangedPathCache(changedPathCache);
+        config.setPrettyJson(prettyJson);
+        config.setGroupByRelease(groupByRelease);
+        config.setIncludeSubmodules(includeSubmodules);
+        config.setSubmoduleOrder(submoduleOrder);
+        config.setSubmoduleThreads(submoduleThreads);
+        config.setDiffStatInJson(diffStatInJson);
+        config.setDiffThreads(diffThreads);
+        config.setDetectRenames(detectRenames);
+        config.setMaxDiffBlobSize(maxDiffBlobSize);
+        config.setDiffStatCacheFolder(diffStatCacheFolder);
+        config.setRepositoryIdleTimeout(repositoryIdleTimeout);
+        config.setTemplateLine(templateLine);
+        config.setAddCurrentBranchFirstLine(addCurrentBranchFirstLine);
+        config.setUseInternalTemplate(useInternalTemplate);
+        config.setInternalTemplateOnlyTable(internalTemplateOnlyTable);
+        config.setHtmlPageSize(htmlPageSize);
+        config.setGitLabUrl(gitLabUrl);
+        config.setBugTrackingUrl(bugTrackingUrl);
+        config.setRegExpIssueNumber(regExpIssueNumber);
+        config.setSilent(silent);
+        config.setTrace(trace);
+        config.setTemplateFile(templateFile);
+        return config;
     }
 }
@@ -0,0 +1,24 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import lombok.Getter;
+
+/** Page of paged html file, row of index page ($page.file, $page.number...) */
+@Getter
+public class HtmlPage {
+    /** From 1 */
+    private final int number;
+    /** File name in folder of index page */
+    private final String file;
+    private final int count;
+    /** Date of first (newest) commit */
+    private final String firstDate;
+    private final String lastDate;
+
+    public HtmlPage(int number, String file, int count, String firstDate, String lastDate) {
+        this.number = number;
+        this.file = file;
+        this.count = count;
+        this.firstDate = firstDate;
+        this.lastDate = lastDate;
+    }
+}
@@ -0,0 +1,70 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.apache.velocity.Template;
+import org.apache.velocity.VelocityContext;
+
+/**
+ * Html file by parsed velocity template (internal or user).
+ * Template merged directly into output writer.
+ * $commitStream - commits read while file is written (one pass, see CommitStream),
+ * $commits - list of commits (size, get, several loops), read to memory before merge only if template uses it
+ */
+public class HtmlRenderer implements CommitRenderer {
+    /** Reference to list "commits" in template: $commits, $!commits, ${commits} */
+    private static final Pattern COMMIT_LIST = Pattern.compile("\\$!?\\{?commits\\b");
+
+    private final Template template;
+    /** Release sections ($releases), null if not grouped by release */
+    private final List<ReleaseDto> releases;
+    /** Template uses list $commits */
+    private final boolean commitList;
+
+    public HtmlRenderer(Template template) {
+        this(template, null, true);
+    }
+
+    public HtmlRenderer(Template template, List<ReleaseDto> releases, boolean commitList) {
+        this.template = template;
+        this.releases = releases;
+        this.commitList = commitList;
+    }
+
+    /** Template text uses list $commits, true if text is not known */
+    public static boolean usesCommitList(String templateText) {
+        return templateText == null || COMMIT_LIST.matcher(templateText).find();
+    }
+
+    /** Parsed template, can be merged by several threads */
+    public Template getTemplate() {
+        return template;
+    }
+
+    @Override
+    public void render(Set<String> currentBranches, CommitStream commits, Writer writer) throws Exception {
+        VelocityContext context = new VelocityContext();
+        context.put("commitStream", commits);
+        if (commitList) {
+            context.put("commits", toList(commits));
+        }
+        context.put("currentBranch", currentBranches.toString());
+        if (releases != null) {
+            context.put("releases", releases);
+        }
+        template.merge(context, writer);
+        writer.flush();
+    }
+
+    private static List<CommitDto> toList(CommitStream commits) {
+        List<CommitDto> list = new ArrayList<CommitDto>();
+        while (commits.hasNext()) {
+            list.add(commits.next());
+        }
+        return list;
+    }
+}
@@ -0,0 +1,100 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Issue number from commit message by regexp (group 1) to issue url and to tag &lt;a&gt; in message.
+ * Regexp is applied once per message, issue numbers are replaced as text (not as regexp).
+ * Tag &lt;a&gt; is created once per issue number
+ */
+public class IssueLinker {
+    /** Max count of cached tags, cache is cleared when full */
+    private static final int MAX_CACHED_LINKS = 10000;
+
+    private final Pattern pattern;
+    private final String issueUrlPrefix;
+    private final Map<String, String> links = new ConcurrentHashMap<String, String>();
+
+    /**
+     * @param pattern regexp with issue number in group 1
+     * @param bugTrackingUrl url of bug tracking, issue number is added to the end
+     */
+    public IssueLinker(Pattern pattern, String bugTrackingUrl) {
+        if (pattern.matcher("").groupCount() < 1) {
+            throw new IllegalArgumentException("Regexp for issue number has no group: " + pattern.pattern());
+        }
+        this.pattern = pattern;
+        this.issueUrlPrefix = bugTrackingUrl.endsWith("/") ? bugTrackingUrl : bugTrackingUrl + "/";
+    }
+
+    /** Issue url by first issue number in message, empty if not found */
+    public String getIssueUrl(String commitMessage) {
+        Matcher matcher = pattern.matcher(commitMessage);
+        while (matcher.find()) {
+            String issueNumber = matcher.group(1);
+            if (issueNumber != null && issueNumber.length() > 0) {
+                return issueUrlPrefix + issueNumber;
+            }
+        }
+        return "";
+    }
+
+    /** Set issueUrl (first issue number) and sWithUrl (all issue numbers replaced by tag &lt;a&gt;) */
+    public void fill(CommitDto dto, String commitMessage) {
+        List<String> issueNumbers = new ArrayList<String>(1);
+        Matcher matcher = pattern.matcher(commitMessage);
+        while (matcher.find()) {
+            String issueNumber = matcher.group(1);
+            if (issueNumber != null && issueNumber.length() > 0 && !issueNumbers.contains(issueNumber)) {
+                issueNumbers.add(issueNumber);
+            }
+        }
+
+        if (issueNumbers.isEmpty()) {
+            dto.setIssueUrl("");
+            dto.setSWithUrl(commitMessage);
+            return;
+        }
+        dto.setIssueUrl(issueUrlPrefix + issueNumbers.get(0));
+        dto.setSWithUrl(replaceIssueNumbers(commitMessage, issueNumbers));
+    }
+
+    /** Every occurrence of issue number replaced by tag, longest issue number first */
+    private String replaceIssueNumbers(String commitMessage, List<String> issueNumbers) {
+        StringBuilder sb = new StringBuilder(commitMessage.length() + 64);
+        int i = 0;
+        while (i < commitMessage.length()) {
+            String found = null;
+            for (String issueNumber : issueNumbers) {
+                if (commitMessage.startsWith(issueNumber, i) && (found == null || issueNumber.length() > found.length())) {
+                    found = issueNumber;
+                }
+            }
+            if (found == null) {
+                sb.append(commitMessage.charAt(i));
+                i++;
+            } else {
+                sb.append(getLink(found));
+                i += found.length();
+            }
+        }
+        return sb.toString();
+    }
+
+    private String getLink(String issueNumber) {
+        String link = links.get(issueNumber);
+        if (link == null) {
+            if (links.size() >= MAX_CACHED_LINKS) {
+                links.clear();
+            }
+            link = "<a href=\"" + issueUrlPrefix + issueNumber + "\">" + issueNumber + "</a>";
+            links.put(issueNumber, link);
+        }
+        return link;
+    }
+}
@@ -0,0 +1,69 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.io.Writer;
+import java.util.List;
+import java.util.Set;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
+
+/** Json file with the same structure as CommitsJson, commits are written one by one */
+public class JsonRenderer implements CommitRenderer {
+    private final Gson gson;
+    /** Superproject and submodules, null - not written */
+    private final List<RepositoryDto> repositories;
+    /** Release sections, null - not written */
+    private final List<ReleaseDto> releases;
+
+    public JsonRenderer() {
+        this(true);
+    }
+
+    /** @param pretty indents and line breaks, otherwise compact json */
+    public JsonRenderer(boolean pretty) {
+        this(pretty, null);
+    }
+
+    public JsonRenderer(boolean pretty, List<RepositoryDto> repositories) {
+        this(pretty, repositories, null);
+    }
+
+    public JsonRenderer(boolean pretty, List<RepositoryDto> repositories, List<ReleaseDto> releases) {
+        gson = pretty ? new GsonBuilder().setPrettyPrinting().create() : new Gson();
+        this.repositories = repositories;
+        this.releases = releases;
+    }
+
+    @Override
+    public void render(Set<String> currentBranches, CommitStream commits, Writer writer) throws Exception {
+        JsonWriter json = gson.newJsonWriter(writer);
+        json.beginObject();
+        json.name("branches");
+        gson.toJson(currentBranches, Set.class, json);
+        if (repositories != null) {
+            json.name("repositories");
+            json.beginArray();
+            for (RepositoryDto repository : repositories) {
+                gson.toJson(repository, RepositoryDto.class, json);
+            }
+            json.endArray();
+        }
+        if (releases != null) {
+            json.name("releases");
+            json.beginArray();
+            for (ReleaseDto release : releases) {
+                gson.toJson(release, ReleaseDto.class, json);
+            }
+            json.endArray();
+        }
+        json.name("commits");
+        json.beginArray();
+        while (commits.hasNext()) {
+            gson.toJson(commits.next(), CommitDto.class, json);
+        }
+        json.endArray();
+        json.endObject();
+        json.flush();
+    }
+}
@@ -0,0 +1,70 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Template line for txt file (param "templateLine"), parsed once.
+ * Line is a sequence of literal text and tokens (%h, %s...).
+ * Token is searched by longest match: "%sWithUrl" is token sWithUrl, not token s and text "WithUrl"
+ */
+public class LineTemplate {
+    /** String - literal text, Token - commit field */
+    private final List<Object> parts;
+    private final Set<Token> tokens;
+
+    private LineTemplate(List<Object> parts, Set<Token> tokens) {
+        this.parts = parts;
+        this.tokens = tokens;
+    }
+
+    public static LineTemplate compile(String templateLine) {
+        List<Object> parts = new ArrayList<Object>();
+        Set<Token> tokens = EnumSet.noneOf(Token.class);
+        String line = templateLine == null ? "" : templateLine;
+
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < line.length()) {
+            Token token = line.charAt(i) == '%' ? Token.match(line, i) : null;
+            if (token == null) {
+                literal.append(line.charAt(i));
+                i++;
+                continue;
+            }
+            if (literal.length() > 0) {
+                parts.add(literal.toString());
+                literal.setLength(0);
+            }
+            parts.add(token);
+            tokens.add(token);
+            i += token.getValue().length();
+        }
+        if (literal.length() > 0) {
+            parts.add(literal.toString());
+        }
+        return new LineTemplate(parts, Collections.unmodifiableSet(tokens));
+    }
+
+    /** Tokens used in line */
+    public Set<Token> getTokens() {
+        return tokens;
+    }
+
+    /** Append commit line (without line separator) */
+    public void appendTo(StringBuilder sb, CommitDto dto) {
+        for (Object part : parts) {
+            if (part instanceof Token) {
+                String value = ((Token) part).extract(dto);
+                if (value != null) {
+                    sb.append(value);
+                }
+            } else {
+                sb.append((String) part);
+            }
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.io.Writer;
+import java.util.Set;
+
+import com.google.gson.Gson;
+
+/** Compact json object of commit on each line (newline delimited json), can be read line by line */
+public class NdjsonRenderer implements CommitRenderer {
+    private final Gson gson = new Gson();
+
+    @Override
+    public void render(Set<String> currentBranches, CommitStream commits, Writer writer) throws Exception {
+        while (commits.hasNext()) {
+            gson.toJson(commits.next(), CommitDto.class, writer);
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+}
@@ -0,0 +1,144 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.velocity.Template;
+import org.apache.velocity.VelocityContext;
+
+/**
+ * Html pages of pageSize commits and index page with links to pages (written to output writer).
+ * Pages are merged by one parsed template in parallel, count of pages in memory is limited.
+ * Page template gets commits of page ($commits list and $commitStream), navigation: $indexPage, $previousPage, $nextPage (file names, null if no page) and $page (number).
+ * Release sections of all commits ($releases) are in each page and index page
+ */
+public class PagedHtmlRenderer implements CommitRenderer {
+    private final Template template;
+    private final Template indexTemplate;
+    /** Release sections ($releases), null if not grouped by release */
+    private final List<ReleaseDto> releases;
+    private final int pageSize;
+    private final ExecutorService executor;
+    /** Pages merged or waiting for merge */
+    private final int maxPending;
+    private final PageFiles files;
+
+    /** Files of pages near index page */
+    public interface PageFiles {
+        /** Name of index page */
+        String getIndexName();
+
+        /** Name of page by number (from 1) */
+        String getName(int page);
+
+        /** Write page, called from threads of executor */
+        void write(int page, String content) throws Exception;
+
+        /** Remove pages from number (pages of previous build with more commits) */
+        void removeFrom(int page) throws Exception;
+    }
+
+    public PagedHtmlRenderer(Template template, Template indexTemplate, List<ReleaseDto> releases, int pageSize, ExecutorService executor,
+                             int maxPending, PageFiles files) {
+        this.template = template;
+        this.indexTemplate = indexTemplate;
+        this.releases = releases;
+        this.pageSize = pageSize;
+        this.executor = executor;
+        this.maxPending = maxPending;
+        this.files = files;
+    }
+
+    @Override
+    public void render(Set<String> currentBranches, CommitStream commits, Writer writer) throws Exception {
+        List<HtmlPage> pages = new ArrayList<HtmlPage>();
+        LinkedList<Future<?>> pending = new LinkedList<Future<?>>();
+        try {
+            List<CommitDto> page = null;
+            while (commits.hasNext()) {
+                CommitDto commit = commits.next();
+                if (page != null && page.size() == pageSize) {
+                    // next page exists
+                    submit(currentBranches, page, pages, pending, true);
+                    page = null;
+                }
+                if (page == null) {
+                    page = new ArrayList<CommitDto>(pageSize);
+                }
+                page.add(commit);
+            }
+            if (page != null) {
+                submit(currentBranches, page, pages, pending, false);
+            }
+            while (!pending.isEmpty()) {
+                await(pending.removeFirst());
+            }
+        } finally {
+            for (Future<?> future : pending) {
+                future.cancel(true);
+            }
+        }
+        files.removeFrom(pages.size() + 1);
+
+        VelocityContext context = new VelocityContext();
+        context.put("pages", pages);
+        context.put("currentBranch", currentBranches.toString());
+        if (releases != null) {
+            context.put("releases", releases);
+        }
+        indexTemplate.merge(context, writer);
+        writer.flush();
+    }
+
+    private void submit(Set<String> currentBranches, List<CommitDto> commits, List<HtmlPage> pages, List<Future<?>> pending,
+                        boolean hasNext) throws Exception {
+        final int number = pages.size() + 1;
+        pages.add(new HtmlPage(number, files.getName(number), commits.size(),
+                commits.get(0).getAd(), commits.get(commits.size() - 1).getAd()));
+
+        final VelocityContext context = new VelocityContext();
+        context.put("commits", commits);
+        context.put("commitStream", new CommitStream(commits));
+        context.put("currentBranch", currentBranches.toString());
+        context.put("page", number);
+        if (releases != null) {
+            context.put("releases", releases);
+        }
+        context.put("indexPage", files.getIndexName());
+        if (number > 1) {
+            context.put("previousPage", files.getName(number - 1));
+        }
+        if (hasNext) {
+            context.put("nextPage", files.getName(number + 1));
+        }
+        if (pending.size() >= maxPending) {
+            // oldest page is written before next page is read
+            await(pending.remove(0));
+        }
+        pending.add(executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                StringWriter page = new StringWriter();
+                template.merge(context, page);
+                files.write(number, page.toString());
+                return null;
+            }
+        }));
+    }
+
+    private static void await(Future<?> future) throws Exception {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Elements of source converted on worker threads, in source order.
+ * Source is read by consumer thread in batches (walk stays sequential), several batches are converted at once
+ */
+public class ParallelMapIterator<S, T> implements Iterator<T> {
+
+    /** Conversion of one element, called from worker threads */
+    public interface Mapper<S, T> {
+        T map(S source) throws Exception;
+    }
+
+    private final Iterator<S> source;
+    private final Mapper<S, T> mapper;
+    private final ExecutorService executor;
+    private final int batchSize;
+    private final int maxBatches;
+    /** Batches in source order */
+    private final LinkedList<Future<List<T>>> batches = new LinkedList<Future<List<T>>>();
+    private Iterator<T> current;
+
+    /**
+     * @param batchSize elements in one task
+     * @param maxBatches batches converted at once, limit of memory when consumer is slow
+     */
+    public ParallelMapIterator(Iterator<S> source, Mapper<S, T> mapper, ExecutorService executor, int batchSize, int maxBatches) {
+        this.source = source;
+        this.mapper = mapper;
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+    }
+
+    /** Pool of daemon threads for conversion */
+    public static ExecutorService newExecutor(int threads) {
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "gitlog-map-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (current == null || !current.hasNext()) {
+            submitBatches();
+            if (batches.isEmpty()) {
+                return false;
+            }
+            current = get(batches.removeFirst()).iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+
+    private void submitBatches() {
+        while (batches.size() < maxBatches && source.hasNext()) {
+            final List<S> batch = new ArrayList<S>(batchSize);
+            while (batch.size() < batchSize && source.hasNext()) {
+                batch.add(source.next());
+            }
+            batches.add(executor.submit(new Callable<List<T>>() {
+                @Override
+                public List<T> call() throws Exception {
+                    List<T> result = new ArrayList<T>(batch.size());
+                    for (S element : batch) {
+                        result.add(mapper.map(element));
+                    }
+                    return result;
+                }
+            }));
+        }
+    }
+
+    private List<T> get(Future<List<T>> batch) {
+        try {
+            return batch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            for (Future<List<T>> other : batches) {
+                other.cancel(true);
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
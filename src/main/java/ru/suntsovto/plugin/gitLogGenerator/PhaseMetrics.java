@@ -0,0 +1,271 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.GsonBuilder;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Wall time, allocated bytes (if JVM supports) and counters of plugin phases.
+ * Phase can be measured by parts and in several threads (output files written in parallel), values are summed.
+ * Phase of each commit (dto, diff) is ThreadPhase: only time, totals of each thread without lock, summed when read
+ */
+public class PhaseMetrics {
+    /** Prefix of maven properties */
+    public static final String PROPERTY_PREFIX = "git.log.metrics.";
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    /** getThreadAllocatedBytes(long) of thread bean of JVM (com.sun.management, not in all JVMs), null if not supported */
+    private static final Method ALLOCATED_BYTES = findAllocatedBytes();
+
+    private final Map<String, Stat> phases = new LinkedHashMap<String, Stat>();
+    private final Map<String, Long> counters = new LinkedHashMap<String, Long>();
+    private final List<ThreadPhase> threadPhases = new ArrayList<ThreadPhase>();
+
+    /** Start phase in current thread */
+    public Phase start(String name) {
+        return new Phase(name);
+    }
+
+    /** Phase of many short parts in worker threads, values are read after threads finished */
+    public synchronized ThreadPhase threadPhase(String name) {
+        ThreadPhase phase = new ThreadPhase(name);
+        threadPhases.add(phase);
+        return phase;
+    }
+
+    public synchronized void add(String name, long nanos, long allocated) {
+        add(phases, name, nanos, allocated, 1);
+    }
+
+    private static void add(Map<String, Stat> phases, String name, long nanos, long allocated, long calls) {
+        Stat stat = phases.get(name);
+        if (stat == null) {
+            stat = new Stat();
+            phases.put(name, stat);
+        }
+        stat.nanos += nanos;
+        stat.allocated = allocated < 0 || stat.allocated < 0 ? -1 : stat.allocated + allocated;
+        stat.calls += calls;
+    }
+
+    /** Phases with totals of thread phases, thread phase without calls is skipped */
+    private Map<String, Stat> getPhases() {
+        Map<String, Stat> all = new LinkedHashMap<String, Stat>();
+        for (Map.Entry<String, Stat> entry : phases.entrySet()) {
+            add(all, entry.getKey(), entry.getValue().nanos, entry.getValue().allocated, entry.getValue().calls);
+        }
+        for (ThreadPhase phase : threadPhases) {
+            synchronized (phase.totals) {
+                for (long[] total : phase.totals) {
+                    if (total[1] > 0) {
+                        add(all, phase.name, total[0], -1, total[1]);
+                    }
+                }
+            }
+        }
+        return all;
+    }
+
+    public synchronized void count(String name, long value) {
+        Long count = counters.get(name);
+        counters.put(name, count == null ? value : count + value);
+    }
+
+    /** Iterator with time of hasNext and next added to phase */
+    public <T> Iterator<T> timed(final String name, final Iterator<T> iterator) {
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                Phase phase = start(name);
+                try {
+                    return iterator.hasNext();
+                } finally {
+                    phase.stop();
+                }
+            }
+
+            @Override
+            public T next() {
+                Phase phase = start(name);
+                try {
+                    return iterator.next();
+                } finally {
+                    phase.stop();
+                }
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("remove");
+            }
+        };
+    }
+
+    /** Properties: git.log.metrics.{phase}.ms, git.log.metrics.{phase}.allocated, git.log.metrics.{counter} */
+    public synchronized Map<String, String> getProperties() {
+        Map<String, String> properties = new LinkedHashMap<String, String>();
+        for (Map.Entry<String, Stat> entry : getPhases().entrySet()) {
+            properties.put(PROPERTY_PREFIX + entry.getKey() + ".ms", String.valueOf(entry.getValue().getMillis()));
+            if (entry.getValue().allocated >= 0) {
+                properties.put(PROPERTY_PREFIX + entry.getKey() + ".allocated", String.valueOf(entry.getValue().allocated));
+            }
+        }
+        for (Map.Entry<String, Long> entry : counters.entrySet()) {
+            properties.put(PROPERTY_PREFIX + entry.getKey(), String.valueOf(entry.getValue()));
+        }
+        return properties;
+    }
+
+    /** One line for build log: phase time (allocated KB), counters */
+    public synchronized String getSummary() {
+        StringBuilder summary = new StringBuilder();
+        for (Map.Entry<String, Stat> entry : getPhases().entrySet()) {
+            summary.append(summary.length() == 0 ? "" : ", ").append(entry.getKey()).append(' ').append(entry.getValue().getMillis()).append(" ms");
+            if (entry.getValue().allocated >= 0) {
+                summary.append(" (").append(entry.getValue().allocated / 1024).append(" KB)");
+            }
+        }
+        for (Map.Entry<String, Long> entry : counters.entrySet()) {
+            summary.append(", ").append(entry.getKey()).append(' ').append(entry.getValue());
+        }
+        return summary.toString();
+    }
+
+    /** Json report {module, phases: {name: {ms, allocated, calls}}, counters: {name: value}} */
+    public synchronized void writeJson(String module, File file) throws IOException {
+        Map<String, Object> report = new LinkedHashMap<String, Object>();
+        report.put("module", module);
+        Map<String, Object> phaseReport = new LinkedHashMap<String, Object>();
+        for (Map.Entry<String, Stat> entry : getPhases().entrySet()) {
+            Map<String, Long> values = new LinkedHashMap<String, Long>();
+            values.put("ms", entry.getValue().getMillis());
+            if (entry.getValue().allocated >= 0) {
+                values.put("allocated", entry.getValue().allocated);
+            }
+            values.put("calls", entry.getValue().calls);
+            phaseReport.put(entry.getKey(), values);
+        }
+        report.put("phases", phaseReport);
+        report.put("counters", counters);
+        FileUtils.writeStringToFile(file, new GsonBuilder().setPrettyPrinting().create().toJson(report), "utf-8");
+    }
+
+    /** Bytes allocated by current thread, -1 if not supported by JVM */
+    private static long getAllocatedBytes() {
+        if (ALLOCATED_BYTES == null) {
+            return -1;
+        }
+        try {
+            return (Long) ALLOCATED_BYTES.invoke(THREADS, Thread.currentThread().getId());
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    /** Class is looked up by name: metrics must not break plugin on JVM without it */
+    private static Method findAllocatedBytes() {
+        try {
+            Class<?> type = Class.forName("com.sun.management.ThreadMXBean");
+            if (!type.isInstance(THREADS)
+                    || !Boolean.TRUE.equals(type.getMethod("isThreadAllocatedMemorySupported").invoke(THREADS))
+                    || !Boolean.TRUE.equals(type.getMethod("isThreadAllocatedMemoryEnabled").invoke(THREADS))) {
+                return null;
+            }
+            return type.getMethod("getThreadAllocatedBytes", long.class);
+        } catch (Exception e) {
+            return null;
+        } catch (LinkageError e) {
+            return null;
+        }
+    }
+
+    private static class Stat {
+        private long nanos;
+        private long allocated;
+        private long calls;
+
+        long getMillis() {
+            return nanos / 1000000;
+        }
+    }
+
+    /**
+     * Time of phase summed in each thread without lock: start and stop are only System.nanoTime.
+     * Time of nested phase is excluded by exclude
+     */
+    public static class ThreadPhase {
+        private final String name;
+        /** Nanos and calls of each thread */
+        private final List<long[]> totals = new ArrayList<long[]>();
+        private final ThreadLocal<long[]> local = new ThreadLocal<long[]>() {
+            @Override
+            protected long[] initialValue() {
+                long[] total = new long[2];
+                synchronized (totals) {
+                    totals.add(total);
+                }
+                return total;
+            }
+        };
+
+        private ThreadPhase(String name) {
+            this.name = name;
+        }
+
+        public long start() {
+            return System.nanoTime();
+        }
+
+        /** Add time since start, returns this time */
+        public long stop(long start) {
+            long nanos = System.nanoTime() - start;
+            long[] total = local.get();
+            total[0] += nanos;
+            total[1]++;
+            return nanos;
+        }
+
+        /** Count of stops in all threads */
+        public long getCalls() {
+            long calls = 0;
+            synchronized (totals) {
+                for (long[] total : totals) {
+                    calls += total[1];
+                }
+            }
+            return calls;
+        }
+
+        /** Remove time of nested phase measured in current thread */
+        public void exclude(long nanos) {
+            local.get()[0] -= nanos;
+        }
+    }
+
+    /** Started phase, stopped in the same thread */
+    public class Phase {
+        private final String name;
+        private final long startNanos = System.nanoTime();
+        private final long startAllocated = getAllocatedBytes();
+
+        private Phase(String name) {
+            this.name = name;
+        }
+
+        public void stop() {
+            long nanos = System.nanoTime() - startNanos;
+            long allocated = startAllocated < 0 ? -1 : getAllocatedBytes() - startAllocated;
+            add(name, nanos, allocated);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.revwalk.RevObject;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+/**
+ * Reverse index commit id -> ref names, only for refs from namespaces (refs/heads, refs/remotes...).
+ * Read directly from packed-refs and loose ref files, without loading all refs of repository.
+ * Parsed packed-refs is cached while file is not changed (modified time and length).
+ * Peeled ids of annotated tags are taken from packed-refs ("^sha" lines), other tags are peeled by object reader
+ */
+public class RefIndex {
+    /** Packed refs file changed less than this time ago is not cached, modified time may be not precise */
+    private static final long RACY_INTERVAL_MS = 3000;
+    private static final Map<String, PackedRefs> PACKED_REFS_CACHE = new ConcurrentHashMap<String, PackedRefs>();
+
+    private final Map<String, ObjectId> refs;
+    /** Commit of ref, if known without reading objects */
+    private final Map<String, ObjectId> peeled;
+    private final Map<ObjectId, List<String>> idToNames;
+
+    private RefIndex(Map<String, ObjectId> refs, Map<String, ObjectId> peeled, Map<ObjectId, List<String>> idToNames) {
+        this.refs = refs;
+        this.peeled = peeled;
+        this.idToNames = idToNames;
+    }
+
+    /**
+     * @param gitDir folder .git
+     * @param namespaces ref name prefixes, for example "refs/heads", "refs/remotes"
+     */
+    public static RefIndex load(File gitDir, List<String> namespaces) throws IOException {
+        File commonDir = getCommonDir(gitDir);
+        List<String> prefixes = new ArrayList<String>();
+        for (String namespace : namespaces) {
+            String prefix = namespace.trim();
+            if (prefix.length() > 0) {
+                prefixes.add(prefix.endsWith("/") ? prefix : prefix + "/");
+            }
+        }
+
+        Map<String, ObjectId> refs = new HashMap<String, ObjectId>();
+        Map<String, ObjectId> peeled = new HashMap<String, ObjectId>();
+        PackedRefs packedRefs = getPackedRefs(commonDir);
+        for (Map.Entry<String, ObjectId> entry : packedRefs.refs.entrySet()) {
+            if (startsWithAny(entry.getKey(), prefixes)) {
+                refs.put(entry.getKey(), entry.getValue());
+                ObjectId peeledId = packedRefs.peeled.get(entry.getKey());
+                if (peeledId != null) {
+                    peeled.put(entry.getKey(), peeledId);
+                } else if (packedRefs.fullyPeeled) {
+                    // not annotated tag
+                    peeled.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        // loose ref override packed ref
+        for (String prefix : prefixes) {
+            readLooseRefs(new File(commonDir, prefix), prefix, refs);
+        }
+        for (Map.Entry<String, ObjectId> entry : refs.entrySet()) {
+            if (!entry.getValue().equals(packedRefs.refs.get(entry.getKey()))) {
+                peeled.remove(entry.getKey());
+            }
+        }
+
+        Map<ObjectId, List<String>> idToNames = new HashMap<ObjectId, List<String>>();
+        for (Map.Entry<String, ObjectId> entry : refs.entrySet()) {
+            List<String> names = idToNames.get(entry.getValue());
+            if (names == null) {
+                names = new ArrayList<String>(1);
+                idToNames.put(entry.getValue(), names);
+            }
+            names.add(entry.getKey());
+        }
+        return new RefIndex(refs, peeled, idToNames);
+    }
+
+    /**
+     * Id of ref by full name (refs/heads/main) from loose ref file or packed-refs, null if not found.
+     * Branches of linked worktree are in common git folder, not read by repository
+     */
+    public static ObjectId resolve(File gitDir, String name) throws IOException {
+        File commonDir = getCommonDir(gitDir);
+        File looseRef = new File(commonDir, name);
+        if (looseRef.isFile()) {
+            String content = FileUtils.readFileToString(looseRef, "utf-8").trim();
+            return ObjectId.isId(content) ? ObjectId.fromString(content) : null;
+        }
+        return getPackedRefs(commonDir).refs.get(name);
+    }
+
+    /** Full ref names pointing to object itself: annotated tag of commit is not peeled (see getPeeledCommits) */
+    public List<String> getNames(ObjectId id) {
+        List<String> names = idToNames.get(id);
+        return names == null ? Collections.<String>emptyList() : names;
+    }
+
+    /**
+     * Commit id -> ref names, annotated tags are peeled to commit.
+     * Objects are read only for refs without peeled id in packed-refs, refs not pointing to commit are skipped
+     */
+    public Map<ObjectId, List<String>> getPeeledCommits(ObjectReader reader) throws IOException {
+        Map<ObjectId, List<String>> commits = new HashMap<ObjectId, List<String>>();
+        RevWalk walk = null;
+        try {
+            for (Map.Entry<String, ObjectId> entry : refs.entrySet()) {
+                ObjectId commit = peeled.get(entry.getKey());
+                if (commit == null) {
+                    if (walk == null) {
+                        walk = new RevWalk(reader);
+                    }
+                    RevObject object;
+                    try {
+                        object = walk.peel(walk.parseAny(entry.getValue()));
+                    } catch (MissingObjectException e) {
+                        // broken ref
+                        continue;
+                    }
+                    if (object.getType() != Constants.OBJ_COMMIT) {
+                        continue;
+                    }
+                    commit = object.copy();
+                }
+                List<String> names = commits.get(commit);
+                if (names == null) {
+                    names = new ArrayList<String>(1);
+                    commits.put(commit, names);
+                }
+                names.add(entry.getKey());
+            }
+        } finally {
+            if (walk != null) {
+                walk.release();
+            }
+        }
+        return commits;
+    }
+
+    /** Common git folder of linked worktree (file "commondir") with refs and objects, gitDir for main worktree */
+    static File getCommonDir(File gitDir) throws IOException {
+        File commonDirFile = new File(gitDir, "commondir");
+        if (!commonDirFile.isFile()) {
+            return gitDir;
+        }
+        File commonDir = new File(FileUtils.readFileToString(commonDirFile, "utf-8").trim());
+        return commonDir.isAbsolute() ? commonDir : new File(gitDir, commonDir.getPath());
+    }
+
+    private static boolean startsWithAny(String name, List<String> prefixes) {
+        for (String prefix : prefixes) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void readLooseRefs(File folder, String prefix, Map<String, ObjectId> refs) throws IOException {
+        File[] files = folder.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = prefix + file.getName();
+            if (file.isDirectory()) {
+                readLooseRefs(file, name + "/", refs);
+            } else if (!file.getName().endsWith(".lock")) {
+                String content = FileUtils.readFileToString(file, "utf-8").trim();
+                // symbolic ref (ref: refs/remotes/origin/main) is skipped
+                if (ObjectId.isId(content)) {
+                    refs.put(name, ObjectId.fromString(content));
+                }
+            }
+        }
+    }
+
+    private static PackedRefs getPackedRefs(File commonDir) throws IOException {
+        File file = new File(commonDir, "packed-refs");
+        if (!file.isFile()) {
+            return PackedRefs.EMPTY;
+        }
+        String key = file.getCanonicalPath();
+        long modified = file.lastModified();
+        long length = file.length();
+
+        PackedRefs cached = PACKED_REFS_CACHE.get(key);
+        if (cached != null && cached.modified == modified && cached.length == length) {
+            return cached;
+        }
+
+        PackedRefs packedRefs = parsePackedRefs(file, modified, length);
+        if (System.currentTimeMillis() - modified > RACY_INTERVAL_MS) {
+            PACKED_REFS_CACHE.put(key, packedRefs);
+        }
+        return packedRefs;
+    }
+
+    /** Lines "sha name", peeled lines "^sha" (commit of previous annotated tag), header "# pack-refs with: ..." */
+    private static PackedRefs parsePackedRefs(File file, long modified, long length) throws IOException {
+        Map<String, ObjectId> refs = new LinkedHashMap<String, ObjectId>();
+        Map<String, ObjectId> peeled = new HashMap<String, ObjectId>();
+        boolean fullyPeeled = false;
+        String lastName = null;
+        for (String line : FileUtils.readLines(file, "utf-8")) {
+            if (line.startsWith("# pack-refs with:")) {
+                fullyPeeled = (line + " ").contains(" fully-peeled ");
+                continue;
+            }
+            if (line.length() > 0 && line.charAt(0) == '^') {
+                String id = line.substring(1).trim();
+                if (lastName != null && ObjectId.isId(id)) {
+                    peeled.put(lastName, ObjectId.fromString(id));
+                }
+                continue;
+            }
+            lastName = null;
+            if (line.length() < Constants.OBJECT_ID_STRING_LENGTH + 2 || line.charAt(0) == '#') {
+                continue;
+            }
+            String id = line.substring(0, Constants.OBJECT_ID_STRING_LENGTH);
+            if (ObjectId.isId(id)) {
+                lastName = line.substring(Constants.OBJECT_ID_STRING_LENGTH + 1).trim();
+                refs.put(lastName, ObjectId.fromString(id));
+            }
+        }
+        return new PackedRefs(modified, length, Collections.unmodifiableMap(refs), Collections.unmodifiableMap(peeled), fullyPeeled);
+    }
+
+    private static class PackedRefs {
+        private static final PackedRefs EMPTY = new PackedRefs(0, 0, Collections.<String, ObjectId>emptyMap(),
+                Collections.<String, ObjectId>emptyMap(), false);
+
+        private final long modified;
+        private final long length;
+        private final Map<String, ObjectId> refs;
+        /** Commit of annotated tag */
+        private final Map<String, ObjectId> peeled;
+        /** All refs are peeled: ref without peeled line is not annotated tag */
+        private final boolean fullyPeeled;
+
+        PackedRefs(long modified, long length, Map<String, ObjectId> refs, Map<String, ObjectId> peeled, boolean fullyPeeled) {
+            this.modified = modified;
+            this.length = length;
+            this.refs = refs;
+            this.peeled = peeled;
+            this.fullyPeeled = fullyPeeled;
+        }
+    }
+}
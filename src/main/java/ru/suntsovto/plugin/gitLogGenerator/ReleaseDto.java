@@ -0,0 +1,16 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import lombok.Data;
+
+/** Release section of changelog grouped by release */
+@Data
+public class ReleaseDto {
+    /** Tag names (several tags of one commit separated by commas), null - commits after the latest release */
+    private String tag;
+    /** Commit of tag */
+    private String hash;
+    /** Date of tag commit */
+    private String date;
+    /** Count of commits in section */
+    private int count;
+}
@@ -0,0 +1,160 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Getter;
+import org.apache.commons.lang.StringUtils;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevFlag;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.revwalk.filter.RevFilter;
+
+/**
+ * Commits grouped by release: release of commit is the earliest tag containing it (as "git describe --contains").
+ * One walk (children before parents) instead of walk for each tag:
+ * tagged commit starts release, other commit gets the earliest release of its children and passes it to parents.
+ * Walk is in commit time order and stops at count of commits. Commit older than its child (clock skew) breaks the order:
+ * then commits are grouped again by topological walk, which reads all history before the first commit
+ * With first parent only the first parent chain is walked, release is passed down the chain (tags of side branches are not seen)
+ */
+public class ReleaseGrouper {
+    /** Peeled commit -> tag names */
+    private final Map<ObjectId, List<String>> tags;
+
+    public ReleaseGrouper(Map<ObjectId, List<String>> tags) {
+        this.tags = tags;
+    }
+
+    /** Commits of one release in order of walk */
+    @Getter
+    public static class Group {
+        /** Tag names, null - commits after the latest release */
+        private final String tag;
+        /** Commit of tag, null for not released commits */
+        private final ObjectId commit;
+        /** Commit time of tag commit, order of releases */
+        private final int commitTime;
+        private final List<CommitRecord> commits = new ArrayList<CommitRecord>();
+
+        Group(String tag, ObjectId commit, int commitTime) {
+            this.tag = tag;
+            this.commit = commit;
+            this.commitTime = commitTime;
+        }
+
+        /** Release is earlier than other (contains commit first) */
+        boolean isEarlierThan(Group other) {
+            if (commitTime != other.commitTime) {
+                return commitTime < other.commitTime;
+            }
+            return other.tag == null || (tag != null && tag.compareTo(other.tag) < 0);
+        }
+    }
+
+    /**
+     * Groups with commits: not released commits first, then releases from the latest
+     * @param since walk stops at this commit, null - all history
+     * @param count max count of commits in all groups, negative - all
+     * @param filter commits included in groups (path filter), null - all. Release is passed through not included commits
+     */
+    public List<Group> group(ObjectReader reader, ObjectId head, ObjectId since, int count, RevFilter filter) throws IOException {
+        return group(reader, head, since, count, filter, false);
+    }
+
+    /** Groups of all commits or of first parent chain */
+    public List<Group> group(ObjectReader reader, ObjectId head, ObjectId since, int count, RevFilter filter,
+                             boolean firstParent) throws IOException {
+        List<Group> groups = group(reader, head, since, count, filter, firstParent, false);
+        return groups != null ? groups : group(reader, head, since, count, filter, firstParent, true);
+    }
+
+    /** Groups, null if commit was walked before its child (not topological walk only) */
+    private List<Group> group(ObjectReader reader, ObjectId head, ObjectId since, int count, RevFilter filter,
+                              boolean firstParent, boolean topo) throws IOException {
+        // walk is not released: reader belongs to caller
+        RevWalk walk = new RevWalk(reader);
+        RevFlag grouped = walk.newFlag("grouped");
+        FirstParentChain chain = null;
+        if (firstParent) {
+            chain = new FirstParentChain(walk, head, since);
+        } else {
+            if (topo) {
+                walk.sort(RevSort.TOPO);
+            }
+            walk.markStart(walk.parseCommit(head));
+            if (since != null) {
+                walk.markUninteresting(walk.parseCommit(since));
+            }
+        }
+
+        Group unreleased = new Group(null, null, Integer.MAX_VALUE);
+        List<Group> releases = new ArrayList<Group>();
+        // release passed from children to parents not walked yet
+        Map<ObjectId, Group> passed = new HashMap<ObjectId, Group>();
+        int total = 0;
+        for (RevCommit commit = next(walk, chain); commit != null; commit = next(walk, chain)) {
+            if (count >= 0 && total >= count) {
+                break;
+            }
+            Group group = passed.remove(commit);
+            List<String> names = tags.get(commit);
+            if (names != null) {
+                // tag of commit is the earliest release containing it
+                group = new Group(getTagName(names), commit.copy(), commit.getCommitTime());
+                releases.add(group);
+            } else if (group == null) {
+                group = unreleased;
+            }
+            int parents = chain != null ? Math.min(1, commit.getParentCount()) : commit.getParentCount();
+            for (int i = 0; i < parents; i++) {
+                RevCommit parent = commit.getParent(i);
+                if (parent.has(grouped)) {
+                    return null;
+                }
+                Group parentGroup = passed.get(parent);
+                if (parentGroup == null || group.isEarlierThan(parentGroup)) {
+                    passed.put(parent, group);
+                }
+            }
+            commit.add(grouped);
+            if (filter == null || filter.include(walk, commit)) {
+                group.commits.add(CommitRecord.of(commit).withRelease(group.tag));
+                total++;
+            }
+        }
+
+        List<Group> groups = new ArrayList<Group>();
+        if (!unreleased.commits.isEmpty()) {
+            groups.add(unreleased);
+        }
+        for (Group release : releases) {
+            if (!release.commits.isEmpty()) {
+                groups.add(release);
+            }
+        }
+        return groups;
+    }
+
+    private static RevCommit next(RevWalk walk, FirstParentChain chain) throws IOException {
+        return chain != null ? chain.next() : walk.next();
+    }
+
+    /** Short names (v1.0) sorted, separated by commas */
+    private static String getTagName(List<String> names) {
+        List<String> shortNames = new ArrayList<String>();
+        for (String name : names) {
+            shortNames.add(name.startsWith(Constants.R_TAGS) ? name.substring(Constants.R_TAGS.length()) : name);
+        }
+        Collections.sort(shortNames);
+        return StringUtils.join(shortNames, ", ");
+    }
+}
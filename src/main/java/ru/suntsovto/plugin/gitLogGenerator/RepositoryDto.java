@@ -0,0 +1,15 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.util.Set;
+
+import lombok.Data;
+
+/** Superproject or submodule of aggregated changelog */
+@Data
+public class RepositoryDto {
+    /** Path of submodule in work tree, "." - superproject */
+    private String path;
+    /** Commit of HEAD */
+    private String head;
+    private Set<String> branches;
+}
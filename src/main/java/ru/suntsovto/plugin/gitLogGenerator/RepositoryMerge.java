@@ -0,0 +1,115 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * One commit sequence from commits of several repositories (superproject and submodules).
+ * Commits of each repository are ordered by walk (newest first)
+ */
+public class RepositoryMerge {
+    private RepositoryMerge() {
+    }
+
+    /** Repositories one after another in order of list */
+    public static Iterator<CommitRecord> byGroup(List<? extends Iterable<CommitRecord>> repositories) {
+        final Iterator<? extends Iterable<CommitRecord>> groups = repositories.iterator();
+        return new Iterator<CommitRecord>() {
+            private Iterator<CommitRecord> current = Collections.<CommitRecord>emptyList().iterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && groups.hasNext()) {
+                    current = groups.next().iterator();
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public CommitRecord next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("remove");
+            }
+        };
+    }
+
+    /**
+     * Newest commits first from all repositories: k-way merge by commit time, heap has one head commit of each repository.
+     * Commits with the same time are in order of list
+     */
+    public static Iterator<CommitRecord> byTime(List<? extends Iterable<CommitRecord>> repositories) {
+        final PriorityQueue<Head> heads = new PriorityQueue<Head>(Math.max(1, repositories.size()));
+        for (int i = 0; i < repositories.size(); i++) {
+            Iterator<CommitRecord> iterator = repositories.get(i).iterator();
+            if (iterator.hasNext()) {
+                heads.add(new Head(i, iterator));
+            }
+        }
+        return new Iterator<CommitRecord>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public CommitRecord next() {
+                Head head = heads.poll();
+                if (head == null) {
+                    throw new NoSuchElementException();
+                }
+                CommitRecord commit = head.commit;
+                if (head.iterator.hasNext()) {
+                    head.commit = head.iterator.next();
+                    heads.add(head);
+                }
+                return commit;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("remove");
+            }
+        };
+    }
+
+    /** Commits of walk in memory with repository path, for walks done in parallel */
+    public static List<CommitRecord> collect(Iterator<CommitRecord> commits, String repository) {
+        List<CommitRecord> list = new ArrayList<CommitRecord>();
+        while (commits.hasNext()) {
+            list.add(commits.next().withRepository(repository));
+        }
+        return list;
+    }
+
+    /** Next commit of repository */
+    private static class Head implements Comparable<Head> {
+        private final int order;
+        private final Iterator<CommitRecord> iterator;
+        private CommitRecord commit;
+
+        Head(int order, Iterator<CommitRecord> iterator) {
+            this.order = order;
+            this.iterator = iterator;
+            this.commit = iterator.next();
+        }
+
+        @Override
+        public int compareTo(Head other) {
+            if (commit.getCommitTime() != other.commit.getCommitTime()) {
+                return commit.getCommitTime() > other.commit.getCommitTime() ? -1 : 1;
+            }
+            return order < other.order ? -1 : (order == other.order ? 0 : 1);
+        }
+    }
+}
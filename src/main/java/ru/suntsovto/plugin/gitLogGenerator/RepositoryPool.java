@@ -0,0 +1,180 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.eclipse.jgit.internal.storage.file.FileRepository;
+import org.eclipse.jgit.internal.storage.file.FileSnapshot;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
+
+/**
+ * Repositories opened by plugin, kept in JVM between builds (maven daemon keeps class loader of plugin),
+ * so warm build does not open repository and read pack indexes again.
+ * Key - canonical git folder. Repository is shared by modules building at the same time (reference count)
+ * and closed after idle timeout without use by daemon timer thread (or on next acquire).
+ * Refs are checked by repository itself (file snapshots). Packs folder is checked on acquire:
+ * new packs are found by repository, but removed packs (gc) keep deleted files open, so not used repository is opened again
+ */
+public class RepositoryPool {
+    private static final Map<String, Entry> ENTRIES = new HashMap<String, Entry>();
+    /** Closes idle repositories, created on first release with timeout */
+    private static Timer timer;
+
+    private RepositoryPool() {
+    }
+
+    /**
+     * Git folder of work tree or any folder inside work tree (search in parent folders).
+     * File .git with "gitdir: path" (submodule, worktree) is resolved. Null if not found
+     */
+    public static File findGitDir(File folder) {
+        FileRepositoryBuilder builder = new FileRepositoryBuilder().findGitDir(folder);
+        return builder.getGitDir() != null && new File(builder.getGitDir(), "HEAD").isFile() ? builder.getGitDir() : null;
+    }
+
+    /** Repository of git folder from pool or opened, must be released */
+    public static synchronized Repository acquire(File gitDir) throws IOException {
+        closeIdle();
+        String key = gitDir.getCanonicalPath();
+        Entry entry = ENTRIES.get(key);
+        if (entry != null && entry.references == 0 && entry.isPackRemoved()) {
+            entry.repository.close();
+            ENTRIES.remove(key);
+            entry = null;
+        }
+        if (entry == null) {
+            entry = new Entry(open(new File(key)));
+            ENTRIES.put(key, entry);
+        }
+        entry.references++;
+        return entry.repository;
+    }
+
+    /**
+     * Return repository to pool
+     * @param idleTimeoutMs repository not used this time is closed, 0 - close now if not used by other module
+     */
+    public static synchronized void release(Repository repository, long idleTimeoutMs) {
+        for (Iterator<Entry> iterator = ENTRIES.values().iterator(); iterator.hasNext(); ) {
+            Entry entry = iterator.next();
+            if (entry.repository == repository) {
+                entry.references--;
+                entry.lastUsed = System.currentTimeMillis();
+                entry.idleTimeoutMs = idleTimeoutMs;
+                if (entry.references == 0 && idleTimeoutMs <= 0) {
+                    repository.close();
+                    iterator.remove();
+                } else if (entry.references == 0) {
+                    scheduleCloseIdle(idleTimeoutMs);
+                }
+                return;
+            }
+        }
+        // not from pool
+        repository.close();
+    }
+
+    /** Close all not used repositories */
+    public static synchronized void clear() {
+        for (Iterator<Entry> iterator = ENTRIES.values().iterator(); iterator.hasNext(); ) {
+            Entry entry = iterator.next();
+            if (entry.references == 0) {
+                entry.repository.close();
+                iterator.remove();
+            }
+        }
+    }
+
+    /** Count of repositories in pool */
+    static synchronized int size() {
+        return ENTRIES.size();
+    }
+
+    /** Idle repositories are closed after timeout even if plugin is not executed again */
+    private static void scheduleCloseIdle(long delayMs) {
+        if (timer == null) {
+            timer = new Timer("gitlog-repository-pool", true);
+        }
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                synchronized (RepositoryPool.class) {
+                    closeIdle();
+                }
+            }
+        }, delayMs);
+    }
+
+    private static void closeIdle() {
+        long now = System.currentTimeMillis();
+        for (Iterator<Entry> iterator = ENTRIES.values().iterator(); iterator.hasNext(); ) {
+            Entry entry = iterator.next();
+            if (entry.references == 0 && now - entry.lastUsed >= entry.idleTimeoutMs) {
+                entry.repository.close();
+                iterator.remove();
+            }
+        }
+    }
+
+    /** Linked worktree has objects in common git folder (file "commondir") */
+    private static FileRepository open(File gitDir) throws IOException {
+        FileRepositoryBuilder builder = new FileRepositoryBuilder().setGitDir(gitDir).setMustExist(true);
+        File commonDir = RefIndex.getCommonDir(gitDir);
+        if (!commonDir.equals(gitDir)) {
+            builder.setObjectDirectory(new File(commonDir, "objects"));
+        }
+        return (FileRepository) builder.build();
+    }
+
+    private static class Entry {
+        private final FileRepository repository;
+        private final File packFolder;
+        private FileSnapshot packSnapshot;
+        private Set<String> packs;
+        private int references;
+        private long lastUsed;
+        private long idleTimeoutMs;
+
+        Entry(FileRepository repository) {
+            this.repository = repository;
+            this.packFolder = new File(repository.getObjectDatabase().getDirectory(), "pack");
+            this.packSnapshot = FileSnapshot.save(packFolder);
+            this.packs = listPacks(packFolder);
+        }
+
+        /** Pack known by repository was removed (gc, repack) */
+        boolean isPackRemoved() {
+            if (!packSnapshot.isModified(packFolder)) {
+                return false;
+            }
+            FileSnapshot snapshot = FileSnapshot.save(packFolder);
+            Set<String> current = listPacks(packFolder);
+            if (!current.containsAll(packs)) {
+                return true;
+            }
+            packSnapshot = snapshot;
+            packs = current;
+            return false;
+        }
+
+        private static Set<String> listPacks(File folder) {
+            String[] names = folder.list(new FilenameFilter() {
+                @Override
+                public boolean accept(File dir, String name) {
+                    return name.endsWith(".pack");
+                }
+            });
+            return names == null ? new HashSet<String>() : new HashSet<String>(Arrays.asList(names));
+        }
+    }
+}
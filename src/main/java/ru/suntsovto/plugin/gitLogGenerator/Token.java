@@ -1,33 +1,152 @@
 package ru.suntsovto.plugin.gitLogGenerator;
 
 
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import lombok.Getter;
 
 @Getter
 public enum Token {
-    H("%H"),
-    h("%h"),
-    an("%an"),
-    ad("%ad"),
-    s("%s"),
-    sWithUrl("%sWithUrl"),
-    issueUrl("%issueUrl"),
-    gitLabUrl("%gitLabUrl");
+    H("%H", "Hash"),
+    h("%h", "h"),
+    an("%an", "an"),
+    ad("%ad", "ad"),
+    s("%s", "s"),
+    sWithUrl("%sWithUrl", "sWithUrl"),
+    issueUrl("%issueUrl", "issueUrl"),
+    gitLabUrl("%gitLabUrl", "gitLabUrl"),
+    repo("%repo", "repo"),
+    files("%files", "files"),
+    insertions("%insertions", "insertions"),
+    deletions("%deletions", "deletions"),
+    release("%release", "release");
+
+    /** Tokens computed by diff of commit, not used in json without param */
+    public static final Set<Token> DIFF_STAT = Collections.unmodifiableSet(EnumSet.of(files, insertions, deletions));
+
+    /** Property reference in velocity template: $commit.h, $commit.getSWithUrl() */
+    private static final Pattern VELOCITY_PROPERTY = Pattern.compile("\\.(\\w+)");
+    /** Variable reference in velocity template: $commit, $!commit, ${commit}, $!{commit} */
+    private static final Pattern VELOCITY_VARIABLE = Pattern.compile("\\$!?(\\{)?(\\w+)");
+    /** Loop variable of velocity template: #foreach ($commit in $commits) */
+    private static final Pattern VELOCITY_LOOP = Pattern.compile("#\\{?foreach\\}?\\s*\\(\\s*\\$!?\\{?(\\w+)");
+    /** Plain property access after variable: .h, .getSWithUrl() */
+    private static final Pattern PROPERTY_ACCESS = Pattern.compile("\\.(\\w+)(\\(\\))?");
 
     private final String value;
-    Token(String value) {
+    /** Property name in CommitDto (velocity template, json) */
+    private final String property;
+    Token(String value, String property) {
         this.value = value;
+        this.property = property;
     }
 
-    public static Set<String> getAllTokenValue(){
-        Set<String> allTokenValue = new HashSet<String>();
-        for (Token value : values()) {
-            allTokenValue.add(value.getValue());
+    /** Token starting at index in line, longest if several match (%s and %sWithUrl). Null if not found */
+    public static Token match(String line, int index){
+        Token found = null;
+        for (Token token : values()) {
+            if (line.startsWith(token.getValue(), index)
+                    && (found == null || token.getValue().length() > found.getValue().length())){
+                found = token;
+            }
         }
-        return allTokenValue;
+        return found;
     }
-}
 
+    /** Value of token from commit */
+    public String extract(CommitDto dto){
+        switch (this) {
+            case H: return dto.getHash();
+            case h: return dto.getH();
+            case an: return dto.getAn();
+            case ad: return dto.getAd();
+            case s: return dto.getS();
+            case sWithUrl: return dto.getSWithUrl();
+            case issueUrl: return dto.getIssueUrl();
+            case gitLabUrl: return dto.getGitLabUrl();
+            case repo: return dto.getRepo();
+            case files: return format(dto.getFiles());
+            case insertions: return format(dto.getInsertions());
+            case deletions: return format(dto.getDeletions());
+            case release: return dto.getRelease();
+            default: return null;
+        }
+    }
+
+    private static String format(Integer value){
+        return value == null ? null : value.toString();
+    }
+
+    /**
+     * Tokens used in velocity template as commit property ($commit.h, $commit.sWithUrl...).
+     * All tokens if commit ($commit or loop variable) is used not by plain property:
+     * whole object (macro argument, #set, output), method with arguments ($commit.get("s")), not known property
+     */
+    public static Set<Token> usedInVelocity(String template){
+        Set<Token> used = EnumSet.noneOf(Token.class);
+        if (template == null){
+            return used;
+        }
+        if (isCommitUsedAsObject(template)){
+            return EnumSet.allOf(Token.class);
+        }
+        Matcher matcher = VELOCITY_PROPERTY.matcher(template);
+        while (matcher.find()) {
+            Token token = byProperty(matcher.group(1));
+            if (token != null){
+                used.add(token);
+            }
+        }
+        return used;
+    }
+
+    private static boolean isCommitUsedAsObject(String template){
+        Set<String> variables = new HashSet<String>();
+        variables.add("commit");
+        Set<Integer> declarations = new HashSet<Integer>();
+        Matcher loop = VELOCITY_LOOP.matcher(template);
+        while (loop.find()) {
+            variables.add(loop.group(1));
+            declarations.add(template.lastIndexOf('$', loop.start(1)));
+        }
+
+        Matcher variable = VELOCITY_VARIABLE.matcher(template);
+        Matcher access = PROPERTY_ACCESS.matcher(template);
+        while (variable.find()) {
+            if (!variables.contains(variable.group(2)) || declarations.contains(variable.start())){
+                continue;
+            }
+            access.region(variable.end(), template.length());
+            if (!access.lookingAt() || byProperty(access.group(1)) == null){
+                return true;
+            }
+            boolean getter = access.group(2) != null;
+            int end = access.end();
+            if (getter != access.group(1).startsWith("get") || end < template.length() && template.charAt(end) == '('){
+                return true;
+            }
+            if (variable.group(1) != null && (end >= template.length() || template.charAt(end) != '}')){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Token of property or its getter (h, getH), null if not token */
+    private static Token byProperty(String name){
+        if (name.length() > 3 && name.startsWith("get") && Character.isUpperCase(name.charAt(3))){
+            name = name.substring(3);
+        }
+        for (Token token : values()) {
+            if (token.getProperty().equalsIgnoreCase(name)){
+                return token;
+            }
+        }
+        return null;
+    }
+}
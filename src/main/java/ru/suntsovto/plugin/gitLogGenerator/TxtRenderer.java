@@ -0,0 +1,47 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.io.Writer;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+
+/** One commit = one line by template line, first line with current branch */
+public class TxtRenderer implements CommitRenderer {
+    /** Header of commits not released when grouped by release */
+    static final String UNRELEASED = "Unreleased";
+
+    private final LineTemplate template;
+    /** Header line "Release: tag" before commits of each release */
+    private final boolean releaseHeaders;
+
+    public TxtRenderer(LineTemplate template) {
+        this(template, false);
+    }
+
+    public TxtRenderer(LineTemplate template, boolean releaseHeaders) {
+        this.template = template;
+        this.releaseHeaders = releaseHeaders;
+    }
+
+    @Override
+    public void render(Set<String> currentBranches, CommitStream commits, Writer writer) throws Exception {
+        // add Current branch as first line
+        StringBuilder line = new StringBuilder();
+        line.append("Branch: ").append(currentBranches).append("\n");
+        writer.append(line);
+        boolean isFirst = true;
+        String release = null;
+        while (commits.hasNext()) {
+            CommitDto commit = commits.next();
+            line.setLength(0);
+            if (releaseHeaders && (isFirst || !StringUtils.equals(release, commit.getRelease()))) {
+                release = commit.getRelease();
+                line.append("Release: ").append(release == null ? UNRELEASED : release).append("\n");
+            }
+            isFirst = false;
+            template.appendTo(line, commit);
+            line.append("\n");
+            writer.append(line);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.velocity.Template;
+import org.apache.velocity.app.VelocityEngine;
+
+/**
+ * Own velocity engines (not global Velocity), initialized once by velocity.properties:
+ * internal templates are loaded only from classpath (not overridden by file of the same name in working folder),
+ * user template by its canonical path (#parse inside it: path from file system root, from working folder, then classpath).
+ * Parsed templates are cached: internal template by name, user template by file name, modified time and length
+ */
+public final class VelocityTemplates {
+    private static final Map<String, CachedTemplate> TEMPLATES = new ConcurrentHashMap<String, CachedTemplate>();
+    private static VelocityEngine internalEngine;
+    private static VelocityEngine fileEngine;
+
+    private VelocityTemplates() {
+    }
+
+    /** Internal template from plugin resources (templateHtml.vm, templateHtmlTable.vm) */
+    public static Template getInternal(String name) throws Exception {
+        return get(getInternalEngine(), "class:" + name, name, 0, 0);
+    }
+
+    /** User template file, parsed again if file changed */
+    public static Template getFile(String templateFile) throws Exception {
+        File file = new File(templateFile).getCanonicalFile();
+        File root = file;
+        while (root.getParentFile() != null) {
+            root = root.getParentFile();
+        }
+        // name from file system root: loader path "." would resolve it from working folder
+        String name = file.getPath().substring(root.getPath().length());
+        return get(getFileEngine(), "file:" + file.getPath(), name, file.lastModified(), file.length());
+    }
+
+    private static Template get(VelocityEngine engine, String key, String name, long lastModified, long length) throws Exception {
+        CachedTemplate cached = TEMPLATES.get(key);
+        if (cached != null && cached.lastModified == lastModified && cached.length == length) {
+            return cached.template;
+        }
+        Template template = engine.getTemplate(name, "utf-8");
+        TEMPLATES.put(key, new CachedTemplate(lastModified, length, template));
+        return template;
+    }
+
+    private static synchronized VelocityEngine getInternalEngine() throws Exception {
+        if (internalEngine == null) {
+            Properties properties = loadProperties();
+            properties.setProperty("resource.loader", "class");
+            internalEngine = createEngine(properties);
+        }
+        return internalEngine;
+    }
+
+    private static synchronized VelocityEngine getFileEngine() throws Exception {
+        if (fileEngine == null) {
+            Properties properties = loadProperties();
+            StringBuilder path = new StringBuilder();
+            for (File root : File.listRoots()) {
+                path.append(root.getPath().replace('\\', '/')).append(", ");
+            }
+            properties.setProperty("file.resource.loader.path", path.append(properties.getProperty("file.resource.loader.path")).toString());
+            fileEngine = createEngine(properties);
+        }
+        return fileEngine;
+    }
+
+    private static VelocityEngine createEngine(Properties properties) throws Exception {
+        VelocityEngine velocityEngine = new VelocityEngine();
+        velocityEngine.init(properties);
+        return velocityEngine;
+    }
+
+    private static Properties loadProperties() throws IOException {
+        InputStream is = VelocityTemplates.class.getClassLoader().getResourceAsStream("velocity.properties");
+        Properties velocityProperties = new Properties();
+        try {
+            velocityProperties.load(is);
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+        velocityProperties.setProperty("runtime.log.logsystem.log4j.logger", "stdout");
+        return velocityProperties;
+    }
+
+    private static class CachedTemplate {
+        private final long lastModified;
+        private final long length;
+        private final Template template;
+
+        CachedTemplate(long lastModified, long length, Template template) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.template = template;
+        }
+    }
+}
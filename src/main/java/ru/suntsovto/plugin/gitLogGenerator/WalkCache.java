@@ -0,0 +1,58 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Commits of walk shared by modules of one build (maven session).
+ * Key - git folder, HEAD commit and walk params. Modules asking the same key
+ * at the same time wait for one walk
+ */
+public class WalkCache {
+    private static final Map<Object, WalkCache> SESSIONS = Collections.synchronizedMap(new WeakHashMap<Object, WalkCache>());
+
+    private final ConcurrentHashMap<String, FutureTask<List<CommitRecord>>> results = new ConcurrentHashMap<String, FutureTask<List<CommitRecord>>>();
+
+    /** Cache of build session, removed with session */
+    public static WalkCache forSession(Object session) {
+        synchronized (SESSIONS) {
+            WalkCache cache = SESSIONS.get(session);
+            if (cache == null) {
+                cache = new WalkCache();
+                SESSIONS.put(session, cache);
+            }
+            return cache;
+        }
+    }
+
+    /** Count of cached walks */
+    int size() {
+        return results.size();
+    }
+
+    /** Commits by key, walk is called once for key */
+    public List<CommitRecord> get(String key, Callable<List<CommitRecord>> walk) throws Exception {
+        FutureTask<List<CommitRecord>> task = new FutureTask<List<CommitRecord>>(walk);
+        FutureTask<List<CommitRecord>> existing = results.putIfAbsent(key, task);
+        if (existing == null) {
+            task.run();
+        } else {
+            task = existing;
+        }
+
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            // failed walk is not cached
+            results.remove(key, task);
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CommitFanOutTest {
+
+    @Test
+    public void allSinksReadAllCommits() throws Exception {
+        List<CommitDto> commits = createCommits(5000);
+        CollectSink first = new CollectSink();
+        CollectSink second = new CollectSink();
+
+        new CommitFanOut(16).run(commits.iterator(), Arrays.<CommitFanOut.CommitSink>asList(first, second));
+
+        Assert.assertEquals(commits, first.commits);
+        Assert.assertEquals(commits, second.commits);
+    }
+
+    @Test
+    public void failedSinkDoesNotBlockWalk() throws Exception {
+        CollectSink sink = new CollectSink();
+        CommitFanOut.CommitSink failed = new CommitFanOut.CommitSink() {
+            @Override
+            public void consume(CommitStream commits) {
+                commits.next();
+                throw new IllegalStateException("sink error");
+            }
+        };
+
+        try {
+            new CommitFanOut(4).run(createCommits(100).iterator(), Arrays.asList(sink, failed));
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("sink error", e.getMessage());
+        }
+        Assert.assertEquals(100, sink.commits.size());
+    }
+
+    private List<CommitDto> createCommits(int count) {
+        List<CommitDto> commits = new ArrayList<CommitDto>();
+        for (int i = 0; i < count; i++) {
+            CommitDto dto = new CommitDto();
+            dto.setH(String.valueOf(i));
+            commits.add(dto);
+        }
+        return commits;
+    }
+
+    private static class CollectSink implements CommitFanOut.CommitSink {
+        private final List<CommitDto> commits = Collections.synchronizedList(new ArrayList<CommitDto>());
+
+        @Override
+        public void consume(CommitStream stream) {
+            while (stream.hasNext()) {
+                commits.add(stream.next());
+            }
+        }
+    }
+}
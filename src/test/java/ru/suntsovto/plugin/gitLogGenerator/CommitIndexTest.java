@@ -0,0 +1,45 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CommitIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void columnReadThroughWindows() throws Exception {
+        File file = folder.newFile("messages.1.bin");
+        FileUtils.writeByteArrayToFile(file, "0123456789abcdef-not saved".getBytes("utf-8"));
+        CommitIndex.MappedColumn column = new CommitIndex.MappedColumn(file, 16, 4);
+
+        Assert.assertEquals("012", read(column, 0, 3));
+        // record over end of window, window bigger than record
+        Assert.assertEquals("3456", read(column, 3, 4));
+        Assert.assertEquals("789abc", read(column, 7, 6));
+        // back to previous segment
+        Assert.assertEquals("12", read(column, 1, 2));
+        Assert.assertEquals("def", read(column, 13, 3));
+        try {
+            column.at(14, 3);
+            Assert.fail("data after saved size is read");
+        } catch (IOException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("corrupted"));
+        }
+    }
+
+    private static String read(CommitIndex.MappedColumn column, long position, int length) throws Exception {
+        ByteBuffer buffer = column.at(position, length);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, "utf-8");
+    }
+}
@@ -0,0 +1,138 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.io.IOUtils;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CommitRecordFileTest {
+    private static final ObjectId FIRST = ObjectId.fromString("0123456789012345678901234567890123456789");
+    private static final ObjectId SECOND = ObjectId.fromString("9876543210987654321098765432109876543210");
+    private static final ObjectId THIRD = ObjectId.fromString("abcdefabcdefabcdefabcdefabcdefabcdefabcd");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recordsOfOtherInstanceRead() throws Exception {
+        File file = new File(folder.getRoot(), "cache/records.bin");
+        StringRecordFile writer = new StringRecordFile(file);
+        writer.add(FIRST, "first");
+        writer.add(SECOND, "second value");
+        writer.add(FIRST, "ignored");
+        writer.flush();
+
+        StringRecordFile reader = new StringRecordFile(file);
+        reader.readTail();
+        Assert.assertEquals("first", reader.get(FIRST));
+        Assert.assertEquals("second value", reader.get(SECOND));
+
+        // process stopped while writing: not complete record is ignored and overwritten by next flush
+        FileOutputStream out = new FileOutputStream(file, true);
+        try {
+            out.write(THIRD.name().getBytes("utf-8"), 0, 25);
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+        reader.readTail();
+        Assert.assertNull(reader.get(THIRD));
+        reader.add(THIRD, "third");
+        reader.flush();
+
+        StringRecordFile next = new StringRecordFile(file);
+        next.readTail();
+        Assert.assertEquals("first", next.get(FIRST));
+        Assert.assertEquals("third", next.get(THIRD));
+    }
+
+    @Test
+    public void leastRecentlyOpenedFileDropped() throws Exception {
+        ChangedPathCache first = ChangedPathCache.open(new File(folder.getRoot(), "paths-0.bin"));
+        ChangedPathCache second = ChangedPathCache.open(new File(folder.getRoot(), "paths-1.bin"));
+        for (int i = 2; i <= CommitRecordFile.MAX_OPEN_FILES; i++) {
+            ChangedPathCache.open(new File(folder.getRoot(), "paths-" + i + ".bin"));
+            Assert.assertSame(second, ChangedPathCache.open(new File(folder.getRoot(), "paths-1.bin")));
+        }
+        Assert.assertNotSame(first, ChangedPathCache.open(new File(folder.getRoot(), "paths-0.bin")));
+    }
+
+    @Test
+    public void instancesOfOneFileFlushedInParallel() throws Exception {
+        final File file = new File(folder.getRoot(), "records.bin");
+        final int records = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        try {
+            for (int i = 0; i < 2; i++) {
+                final int instance = i;
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        StringRecordFile writer = new StringRecordFile(file);
+                        for (int j = 0; j < records; j++) {
+                            writer.add(ObjectId.fromRaw(new int[]{instance, j, 0, 0, 0}), instance + "-" + j);
+                            writer.flush();
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        StringRecordFile reader = new StringRecordFile(file);
+        reader.readTail();
+        for (int j = 0; j < records; j++) {
+            Assert.assertEquals("0-" + j, reader.get(ObjectId.fromRaw(new int[]{0, j, 0, 0, 0})));
+            Assert.assertEquals("1-" + j, reader.get(ObjectId.fromRaw(new int[]{1, j, 0, 0, 0})));
+        }
+    }
+
+    private static class StringRecordFile extends CommitRecordFile<String> {
+
+        StringRecordFile(File file) {
+            super(file);
+        }
+
+        @Override
+        protected void writeValue(DataOutputStream out, String value) throws IOException {
+            out.writeUTF(value);
+        }
+
+        @Override
+        protected String readValue(ByteBuffer buffer) {
+            if (buffer.remaining() < 2) {
+                return null;
+            }
+            int length = buffer.getShort() & 0xffff;
+            if (buffer.remaining() < length) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            try {
+                return new String(bytes, "utf-8");
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
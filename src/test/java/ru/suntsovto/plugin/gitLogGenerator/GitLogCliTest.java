@@ -0,0 +1,96 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.io.File;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class GitLogCliTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TestGitRepository repository;
+
+    @Before
+    public void setUp() throws Exception {
+        repository = new TestGitRepository(folder.newFolder("repo"));
+        for (int i = 1; i <= 3; i++) {
+            repository.commit("file.txt", "content " + i, "JIRA-" + i + " commit " + i);
+        }
+    }
+
+    @Test
+    public void paramsParsedByName() {
+        GitLogConfig config = GitLogCli.parse(new String[]{"formats=txt,json", "--countCommits=-1", "prettyJson=false",
+                "templateLine=%h = %s", "maxDiffBlobSize=10"});
+        Assert.assertEquals("txt,json", config.getFormats());
+        Assert.assertEquals(Integer.valueOf(-1), config.getCountCommits());
+        Assert.assertFalse(config.isPrettyJson());
+        Assert.assertEquals("%h = %s", config.getTemplateLine());
+        Assert.assertEquals(10, config.getMaxDiffBlobSize());
+        Assert.assertFalse(config.isSilent());
+
+        for (String arg : new String[]{"unknown=1", "countCommits=ten", "trace=yes", "formats"}) {
+            try {
+                GitLogCli.parse(new String[]{arg});
+                Assert.fail(arg);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void generatedWithoutMaven() throws Exception {
+        File outputFolder = folder.newFolder("output");
+        GitLogConfig config = GitLogCli.parse(new String[]{"outputFolder=" + outputFolder.getAbsolutePath(),
+                "formats=txt", "templateLine=%s", "countCommits=2"});
+        ChangelogGenerator generator = new ChangelogGenerator(config);
+        generator.setBasedir(repository.getGitDir().getParentFile());
+        generator.generate();
+
+        List<String> lines = FileUtils.readLines(new File(outputFolder, "CHANGELOG.txt"), "utf-8");
+        Assert.assertEquals(3, lines.size());
+        Assert.assertEquals("JIRA-3 commit 3", lines.get(1));
+        Assert.assertEquals("[master]", generator.getProperties().get("git.branch"));
+        Assert.assertTrue(generator.getProperties().containsKey("git.commit.hash"));
+    }
+
+    @Test
+    public void cacheFoldersInGitFolder() throws Exception {
+        File outputFolder = folder.newFolder("output");
+        File basedir = repository.getGitDir().getParentFile();
+        GitLogConfig config = GitLogCli.parse(new String[]{"outputFolder=" + outputFolder.getAbsolutePath(), "useCommitIndex=true",
+                "skipUnchanged=true"});
+        GitLogCli.setDefaultFolders(config, basedir);
+        Assert.assertEquals(new File(repository.getGitDir(), "gitlog").getCanonicalFile(), new File(config.getCacheFolder()).getCanonicalFile());
+        Assert.assertEquals(new File(repository.getGitDir(), "gitlog/index").getCanonicalFile(), new File(config.getIndexFolder()).getCanonicalFile());
+        Assert.assertEquals(new File(repository.getGitDir(), "gitlog/changed-paths.bin").getCanonicalFile(),
+                new File(config.getChangedPathCache()).getCanonicalFile());
+        Assert.assertEquals(new File(repository.getGitDir(), "gitlog").getCanonicalFile(), new File(config.getDiffStatCacheFolder()).getCanonicalFile());
+
+        ChangelogGenerator generator = new ChangelogGenerator(config);
+        generator.setBasedir(basedir);
+        generator.generate();
+        Assert.assertNotNull(new File(config.getIndexFolder()).list());
+        Assert.assertFalse(generator.getMetricsSummary().contains("skipped"));
+
+        // fingerprint of output files
+        generator = new ChangelogGenerator(config);
+        generator.setBasedir(basedir);
+        generator.generate();
+        Assert.assertTrue(generator.getMetricsSummary().contains("skipped"));
+
+        // empty value is not replaced: no cache
+        config = GitLogCli.parse(new String[]{"cacheFolder=", "indexFolder="});
+        GitLogCli.setDefaultFolders(config, basedir);
+        Assert.assertEquals("", config.getCacheFolder());
+        Assert.assertEquals("", config.getIndexFolder());
+    }
+}
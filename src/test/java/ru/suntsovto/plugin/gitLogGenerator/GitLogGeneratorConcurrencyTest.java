@@ -0,0 +1,125 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Several plugin executions in one JVM at the same time (mvn -T) */
+public class GitLogGeneratorConcurrencyTest {
+    private static final int EXECUTIONS = 16;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void parallelExecutions() throws Exception {
+        parallelExecutions(null, false);
+    }
+
+    @Test
+    public void parallelExecutionsWithSharedWalk() throws Exception {
+        Object session = new Object();
+        parallelExecutions(session, true);
+        Assert.assertEquals(1, WalkCache.forSession(session).size());
+    }
+
+    @Test
+    public void walkNotSharedByDefault() throws Exception {
+        // commits are streamed from walk, not collected for session
+        Object session = new Object();
+        parallelExecutions(session, false);
+        Assert.assertEquals(0, WalkCache.forSession(session).size());
+    }
+
+    @Test
+    public void sharedWalkCalledOnce() throws Exception {
+        final WalkCache cache = WalkCache.forSession(new Object());
+        final AtomicInteger walks = new AtomicInteger();
+        final Callable<List<CommitRecord>> walk = new Callable<List<CommitRecord>>() {
+            @Override
+            public List<CommitRecord> call() throws Exception {
+                walks.incrementAndGet();
+                Thread.sleep(100);
+                return Collections.singletonList(new CommitRecord(ObjectId.zeroId(), "tester", 0, "message"));
+            }
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(EXECUTIONS);
+        List<Future<List<CommitRecord>>> futures = new ArrayList<Future<List<CommitRecord>>>();
+        try {
+            for (int i = 0; i < EXECUTIONS; i++) {
+                futures.add(executor.submit(new Callable<List<CommitRecord>>() {
+                    @Override
+                    public List<CommitRecord> call() throws Exception {
+                        return cache.get("repo|head", walk);
+                    }
+                }));
+            }
+            for (Future<List<CommitRecord>> future : futures) {
+                Assert.assertSame(futures.get(0).get(), future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assert.assertEquals(1, walks.get());
+    }
+
+    private void parallelExecutions(final Object session, final boolean shareWalkResults) throws Exception {
+        final TestGitRepository repository = new TestGitRepository(folder.newFolder("repo"));
+        for (int i = 0; i < 30; i++) {
+            repository.commit("file" + (i % 3) + ".txt", "content " + i, "JIRA-" + i + " commit " + i);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(EXECUTIONS);
+        List<Future<MavenProject>> futures = new ArrayList<Future<MavenProject>>();
+        final List<File> outputFolders = new ArrayList<File>();
+        try {
+            for (int i = 0; i < EXECUTIONS; i++) {
+                final File outputFolder = folder.newFolder("module" + i);
+                outputFolders.add(outputFolder);
+                futures.add(executor.submit(new Callable<MavenProject>() {
+                    @Override
+                    public MavenProject call() throws Exception {
+                        MavenProject project = new MavenProject();
+                        GitLogGenerator generator = repository.createGenerator(project, outputFolder);
+                        TestGitRepository.set(generator, "formats", "txt,json,html");
+                        TestGitRepository.set(generator, "bugTrackingUrl", "http://jira");
+                        TestGitRepository.set(generator, "session", session);
+                        TestGitRepository.set(generator, "shareWalkResults", shareWalkResults);
+                        generator.execute();
+                        return project;
+                    }
+                }));
+            }
+            for (Future<MavenProject> future : futures) {
+                MavenProject project = future.get();
+                Assert.assertEquals("[master]", project.getProperties().getProperty("git.branch"));
+                Assert.assertNotNull(project.getProperties().getProperty("git.commit.hash"));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (String format : new String[]{"txt", "json", "html"}) {
+            String expected = FileUtils.readFileToString(new File(outputFolders.get(0), "CHANGELOG." + format), "utf-8");
+            Assert.assertTrue(expected.contains("commit 29"));
+            for (File outputFolder : outputFolders) {
+                Assert.assertEquals(expected, FileUtils.readFileToString(new File(outputFolder, "CHANGELOG." + format), "utf-8"));
+            }
+        }
+    }
+}
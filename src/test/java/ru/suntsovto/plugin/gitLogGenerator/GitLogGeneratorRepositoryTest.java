@@ -0,0 +1,554 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import com.google.gson.Gson;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.ResetCommand;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/** Plugin execution with repository in temp folder */
+public class GitLogGeneratorRepositoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TestGitRepository repository;
+    private File outputFolder;
+    private File cacheFolder;
+
+    @Before
+    public void setUp() throws Exception {
+        repository = new TestGitRepository(folder.newFolder("repo"));
+        for (int i = 1; i <= 5; i++) {
+            repository.commit("file.txt", "content " + i, "JIRA-" + i + " commit " + i);
+        }
+        outputFolder = folder.newFolder("output");
+        cacheFolder = folder.newFolder("cache");
+    }
+
+    @Test
+    public void unchangedOutputIsSkipped() throws Exception {
+        File txt = new File(outputFolder, "CHANGELOG.txt");
+        execute("templateLine", "%h %s", "skipUnchanged", true);
+        Assert.assertTrue(FileUtils.readFileToString(txt, "utf-8").contains("JIRA-5 commit 5"));
+
+        // same HEAD and params - file is not written, parameters restored
+        Assert.assertTrue(txt.setLastModified(1000000L));
+        MavenProject project = execute("templateLine", "%h %s", "skipUnchanged", true);
+        Assert.assertEquals(1000000L, txt.lastModified());
+        Assert.assertNotNull(project.getProperties().getProperty("git.commit.hash"));
+        Assert.assertEquals("[master]", project.getProperties().getProperty("git.branch"));
+
+        // same content without fingerprint - file is not replaced
+        FileUtils.cleanDirectory(cacheFolder);
+        execute("templateLine", "%h %s", "skipUnchanged", true);
+        Assert.assertEquals(1000000L, txt.lastModified());
+
+        // new commit - file replaced
+        repository.commit("file.txt", "content 6", "JIRA-6 commit 6");
+        execute("templateLine", "%h %s", "skipUnchanged", true);
+        Assert.assertTrue(FileUtils.readFileToString(txt, "utf-8").contains("JIRA-6 commit 6"));
+        Assert.assertFalse(new File(outputFolder, "CHANGELOG.txt.tmp").exists());
+    }
+
+    @Test
+    public void commitIndexSameAsWalk() throws Exception {
+        File txt = new File(outputFolder, "CHANGELOG.txt");
+        File indexFolder = new File(folder.getRoot(), "index");
+        Object[] indexParams = {"skipUnchanged", false, "countCommits", -1,
+                "useCommitIndex", true, "indexFolder", indexFolder.getAbsolutePath()};
+
+        execute(indexParams);
+        String fromIndex = FileUtils.readFileToString(txt, "utf-8");
+        execute("skipUnchanged", false, "countCommits", -1);
+        Assert.assertEquals(FileUtils.readFileToString(txt, "utf-8"), fromIndex);
+
+        // new commits added to index as segment
+        repository.commit("file.txt", "content 6", "JIRA-6 commit 6");
+        repository.commit("other.txt", "content 7", "JIRA-7 commit 7");
+        execute(indexParams);
+        fromIndex = FileUtils.readFileToString(txt, "utf-8");
+        Assert.assertTrue(fromIndex.contains("JIRA-7 commit 7"));
+        execute("skipUnchanged", false, "countCommits", -1);
+        Assert.assertEquals(FileUtils.readFileToString(txt, "utf-8"), fromIndex);
+
+        // last indexed commit not in history - index created again
+        repository.getGit().reset().setMode(ResetCommand.ResetType.HARD).setRef("HEAD~3").call();
+        repository.commit("file.txt", "content 8", "JIRA-8 commit 8");
+        execute(indexParams);
+        fromIndex = FileUtils.readFileToString(txt, "utf-8");
+        Assert.assertFalse(fromIndex.contains("JIRA-7 commit 7"));
+        execute("skipUnchanged", false, "countCommits", -1);
+        Assert.assertEquals(FileUtils.readFileToString(txt, "utf-8"), fromIndex);
+
+        // count of commits applied to index
+        execute("skipUnchanged", false, "countCommits", 2, "useCommitIndex", true, "indexFolder", indexFolder.getAbsolutePath());
+        Assert.assertEquals(3, FileUtils.readLines(txt, "utf-8").size());
+    }
+
+    @Test
+    public void metricsArePublished() throws Exception {
+        File report = new File(folder.getRoot(), "metrics.json");
+        MavenProject project = execute("formats", "txt,json", "metricsReport", report.getAbsolutePath(), "skipUnchanged", true);
+        Assert.assertEquals("5", project.getProperties().getProperty("git.log.metrics.commits"));
+        Assert.assertEquals(String.valueOf(new File(outputFolder, "CHANGELOG.json").length()),
+                project.getProperties().getProperty("git.log.metrics.bytes.json"));
+        Assert.assertNotNull(project.getProperties().getProperty("git.log.metrics.walk.ms"));
+        Assert.assertNotNull(project.getProperties().getProperty("git.log.metrics.render.txt.ms"));
+        // time of each commit in worker threads, allocation is not measured for each commit
+        Assert.assertNotNull(project.getProperties().getProperty("git.log.metrics.dto.ms"));
+        Assert.assertNull(project.getProperties().getProperty("git.log.metrics.dto.allocated"));
+        Assert.assertNull(project.getProperties().getProperty("git.log.metrics.diff.ms"));
+        Assert.assertTrue(FileUtils.readFileToString(report, "utf-8").contains("\"total\""));
+
+        // skipped by fingerprint, metrics are not restored
+        project = execute("formats", "txt,json", "skipUnchanged", true);
+        Assert.assertEquals("1", project.getProperties().getProperty("git.log.metrics.skipped"));
+        Assert.assertNull(project.getProperties().getProperty("git.log.metrics.commits"));
+    }
+
+    @Test
+    public void fingerprintOfEachOutputFolder() throws Exception {
+        File otherOutput = folder.newFolder("other-output");
+        execute("formats", "txt", "skipUnchanged", true);
+        execute("formats", "txt", "skipUnchanged", true, "outputFolder", otherOutput.getAbsolutePath());
+        Assert.assertTrue(new File(otherOutput, "CHANGELOG.txt").isFile());
+
+        // one cache folder: fingerprint of the first folder is kept
+        MavenProject project = execute("formats", "txt", "skipUnchanged", true);
+        Assert.assertEquals("1", project.getProperties().getProperty("git.log.metrics.skipped"));
+        project = execute("formats", "txt", "skipUnchanged", true, "outputFolder", otherOutput.getAbsolutePath());
+        Assert.assertEquals("1", project.getProperties().getProperty("git.log.metrics.skipped"));
+    }
+
+    @Test
+    public void parallelDtoSameAsSequential() throws Exception {
+        for (int i = 6; i <= 600; i++) {
+            repository.commit("file.txt", "content " + i, "JIRA-" + i + " commit " + i);
+        }
+        File json = new File(outputFolder, "CHANGELOG.json");
+        Object[] params = {"skipUnchanged", false, "countCommits", -1, "formats", "txt,json",
+                "templateLine", "%ad %h %an %sWithUrl", "bugTrackingUrl", "https://jira", "regExpIssueNumber", "^(.[^\\s]+)\\s*.*"};
+        MavenProject sequential = execute(params);
+        String expected = FileUtils.readFileToString(json, "utf-8");
+
+        MavenProject parallel = execute(params, "dtoThreads", 4);
+        Assert.assertEquals(expected, FileUtils.readFileToString(json, "utf-8"));
+        Assert.assertEquals(sequential.getProperties().getProperty("git.commit.hash"), parallel.getProperties().getProperty("git.commit.hash"));
+        Assert.assertEquals("600", parallel.getProperties().getProperty("git.log.metrics.commits"));
+    }
+
+    @Test
+    public void lowMemoryWalkSameAsLog() throws Exception {
+        repository.commit("file.txt", "content 6", "JIRA-6 first line\nsecond line\n\nbody of commit");
+        File txt = new File(outputFolder, "CHANGELOG.txt");
+        execute("skipUnchanged", false, "countCommits", -1, "templateLine", "%H %ad %an %s");
+        String expected = FileUtils.readFileToString(txt, "utf-8");
+        Assert.assertTrue(expected.contains("JIRA-6 first line second line"));
+
+        execute("skipUnchanged", false, "countCommits", -1, "templateLine", "%H %ad %an %s", "lowMemoryWalk", true);
+        Assert.assertEquals(expected, FileUtils.readFileToString(txt, "utf-8"));
+        execute("skipUnchanged", false, "countCommits", 3, "lowMemoryWalk", true);
+        Assert.assertEquals(4, FileUtils.readLines(txt, "utf-8").size());
+    }
+
+    @Test
+    public void branchesOfDetachedHead() throws Exception {
+        Git git = repository.getGit();
+        RevCommit head = git.log().setMaxCount(1).call().iterator().next();
+        git.tag().setName("light").setObjectId(head).setAnnotated(false).call();
+        git.tag().setName("annotated").setObjectId(head).setAnnotated(true).setMessage("release").call();
+        git.checkout().setName(head.getName()).call();
+
+        // refs pointing to commit itself: annotated tag points to tag object
+        MavenProject project = execute("skipUnchanged", false);
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("master", "tags/light")),
+                new HashSet<String>(Arrays.asList(StringUtils.split(StringUtils.strip(project.getProperties().getProperty("git.branch"), "[]"), ", "))));
+    }
+
+    @Test
+    public void commitsSinceTag() throws Exception {
+        Git git = repository.getGit();
+        RevCommit second = git.log().setSkip(3).setMaxCount(1).call().iterator().next();
+        RevCommit fourth = git.log().setSkip(1).setMaxCount(1).call().iterator().next();
+        git.tag().setName("v1").setObjectId(second).setAnnotated(true).setMessage("release 1").call();
+        git.tag().setName("v2").setObjectId(fourth).setAnnotated(false).call();
+        File txt = new File(outputFolder, "CHANGELOG.txt");
+        Object[] params = {"skipUnchanged", false, "countCommits", -1, "templateLine", "%s"};
+
+        execute(params, "sinceLatestTag", true);
+        Assert.assertEquals(Arrays.asList("Branch: [master]", "JIRA-5 commit 5"), FileUtils.readLines(txt, "utf-8"));
+
+        // tag on HEAD is skipped
+        git.tag().setName("v3").setAnnotated(true).setMessage("release 3").call();
+        execute(params, "sinceLatestTag", true);
+        Assert.assertEquals(Arrays.asList("Branch: [master]", "JIRA-5 commit 5"), FileUtils.readLines(txt, "utf-8"));
+
+        execute(params, "sinceRef", "v1");
+        Assert.assertEquals(Arrays.asList("Branch: [master]", "JIRA-5 commit 5", "JIRA-4 commit 4", "JIRA-3 commit 3"),
+                FileUtils.readLines(txt, "utf-8"));
+
+        execute(params, "sinceRef", "v1", "untilRef", "v2", "lowMemoryWalk", true);
+        Assert.assertEquals(Arrays.asList("Branch: [master]", "JIRA-4 commit 4", "JIRA-3 commit 3"), FileUtils.readLines(txt, "utf-8"));
+    }
+
+    @Test
+    public void commitsOfModulePath() throws Exception {
+        for (int i = 6; i <= 40; i++) {
+            String module = i % 3 == 0 ? "module-a" : i % 3 == 1 ? "module-b" : "module-b/sub";
+            repository.commit(module + "/file" + i + ".txt", "content " + i, "JIRA-" + i + " " + module);
+        }
+        File txt = new File(outputFolder, "CHANGELOG.txt");
+        File cache = new File(folder.getRoot(), "changed-paths.bin");
+        Object[] params = {"skipUnchanged", false, "countCommits", -1, "templateLine", "%s", "changedPathCache", cache.getAbsolutePath()};
+
+        MavenProject project = new MavenProject();
+        project.setFile(new File(repository.getGitDir().getParentFile(), "module-a/pom.xml"));
+        GitLogGenerator generator = repository.createGenerator(project, outputFolder);
+        for (int i = 0; i < params.length; i += 2) {
+            TestGitRepository.set(generator, (String) params[i], params[i + 1]);
+        }
+        TestGitRepository.set(generator, "modulePathFilter", true);
+        generator.execute();
+        List<String> lines = FileUtils.readLines(txt, "utf-8");
+        Assert.assertEquals(13, lines.size());
+        for (String line : lines.subList(1, lines.size())) {
+            Assert.assertTrue(line, line.endsWith(" module-a"));
+        }
+        Assert.assertTrue(cache.length() > 0);
+
+        // folder with sub folder, filters from cache
+        execute(params, "paths", "./module-b/");
+        Assert.assertEquals(24, FileUtils.readLines(txt, "utf-8").size());
+        execute(params, "paths", "module-b/sub, file.txt", "countCommits", 20);
+        lines = FileUtils.readLines(txt, "utf-8");
+        Assert.assertEquals(17, lines.size());
+        Assert.assertEquals("JIRA-1 commit 1", lines.get(16));
+    }
+
+    @Test
+    public void ndjsonAndGzipFormats() throws Exception {
+        execute("formats", "ndjson,json.gz,txt.gz", "prettyJson", false);
+
+        List<String> lines = FileUtils.readLines(new File(outputFolder, "CHANGELOG.ndjson"), "utf-8");
+        Assert.assertEquals(5, lines.size());
+        CommitDto first = new Gson().fromJson(lines.get(0), CommitDto.class);
+        Assert.assertEquals("JIRA-5 commit 5", first.getS());
+
+        String json = IOUtils.toString(new GZIPInputStream(new FileInputStream(new File(outputFolder, "CHANGELOG.json.gz"))), "utf-8");
+        Assert.assertFalse(json.contains("\n"));
+        Assert.assertEquals(5, new Gson().fromJson(json, CommitsJson.class).getCommits().size());
+        String txt = IOUtils.toString(new GZIPInputStream(new FileInputStream(new File(outputFolder, "CHANGELOG.txt.gz"))), "utf-8");
+        Assert.assertTrue(txt.startsWith("Branch: [master]"));
+
+        // the same content - gzip file is not replaced
+        File gzip = new File(outputFolder, "CHANGELOG.json.gz");
+        Assert.assertTrue(gzip.setLastModified(1000000L));
+        execute("formats", "ndjson,json.gz,txt.gz", "prettyJson", false, "skipUnchanged", false);
+        Assert.assertEquals(1000000L, gzip.lastModified());
+    }
+
+    @Test
+    public void submoduleCommitsMerged() throws Exception {
+        // library commits 30 seconds after commits of superproject
+        TestGitRepository library = new TestGitRepository(folder.newFolder("library"), 1600000030000L);
+        for (int i = 1; i <= 3; i++) {
+            library.commit("lib.txt", "lib " + i, "LIB-" + i + " library " + i);
+        }
+        repository.getGit().submoduleAdd().setPath("lib").setURI(library.getGitDir().getParentFile().toURI().toString()).call();
+        RevCommit head = repository.commit("file.txt", "content 6", "JIRA-6 add submodule");
+        File txt = new File(outputFolder, "CHANGELOG.txt");
+
+        MavenProject project = execute("includeSubmodules", true, "formats", "txt,json", "templateLine", "%repo %s", "countCommits", 5);
+        Assert.assertEquals(Arrays.asList("Branch: [master]", ". JIRA-6 add submodule", ". JIRA-5 commit 5", ". JIRA-4 commit 4",
+                "lib LIB-3 library 3", ". JIRA-3 commit 3"), FileUtils.readLines(txt, "utf-8"));
+        Assert.assertEquals(head.abbreviate(8).name(), project.getProperties().getProperty("git.commit.hash"));
+
+        CommitsJson json = new Gson().fromJson(FileUtils.readFileToString(new File(outputFolder, "CHANGELOG.json"), "utf-8"), CommitsJson.class);
+        Assert.assertEquals(2, json.getRepositories().size());
+        Assert.assertEquals("lib", json.getRepositories().get(1).getPath());
+        Assert.assertEquals(library.getGit().getRepository().resolve("HEAD").getName(), json.getRepositories().get(1).getHead());
+        Assert.assertEquals("[master]", json.getRepositories().get(1).getBranches().toString());
+
+        execute("includeSubmodules", true, "submoduleOrder", "group", "templateLine", "%repo %s", "countCommits", 2);
+        Assert.assertEquals(Arrays.asList("Branch: [master]", ". JIRA-6 add submodule", ". JIRA-5 commit 5",
+                "lib LIB-3 library 3", "lib LIB-2 library 2"), FileUtils.readLines(txt, "utf-8"));
+    }
+
+    @Test
+    public void diffStatOfCommits() throws Exception {
+        String lines = "";
+        for (int i = 1; i <= 10; i++) {
+            lines += "line " + i + "\n";
+        }
+        repository.commit("big.txt", lines, "JIRA-6 add");
+        repository.getGit().rm().addFilepattern("big.txt").call();
+        repository.commit("moved.txt", lines + "line 11\n", "JIRA-7 move");
+        File txt = new File(outputFolder, "CHANGELOG.txt");
+
+        execute("templateLine", "%files %insertions %deletions %s", "diffThreads", 2);
+        List<String> result = FileUtils.readLines(txt, "utf-8");
+        Assert.assertEquals("1 1 0 JIRA-7 move", result.get(1));
+        Assert.assertEquals("1 10 0 JIRA-6 add", result.get(2));
+        Assert.assertEquals("1 1 1 JIRA-5 commit 5", result.get(3));
+        Assert.assertEquals("1 1 0 JIRA-1 commit 1", result.get(7));
+        // computed once, next builds read stat from cache
+        File cache = new File(cacheFolder, "diffstat-renames-1048576.bin");
+        Assert.assertEquals(7 * 32, cache.length());
+        Assert.assertFalse(new File(repository.getGitDir(), "gitlog").exists());
+        execute("templateLine", "%files %insertions %deletions %s", "skipUnchanged", false);
+        Assert.assertEquals(result, FileUtils.readLines(txt, "utf-8"));
+        Assert.assertEquals(7 * 32, cache.length());
+
+        execute("templateLine", "%files %insertions %deletions %s", "detectRenames", false);
+        Assert.assertEquals("2 11 10 JIRA-7 move", FileUtils.readLines(txt, "utf-8").get(1));
+
+        // lines of files bigger than limit are not counted
+        execute("templateLine", "%files %insertions %deletions %s", "maxDiffBlobSize", 9L);
+        result = FileUtils.readLines(txt, "utf-8");
+        Assert.assertEquals("1 0 0 JIRA-6 add", result.get(2));
+        Assert.assertEquals("1 1 1 JIRA-5 commit 5", result.get(3));
+
+        // json has diff stat only with param
+        execute("formats", "json");
+        Assert.assertFalse(FileUtils.readFileToString(new File(outputFolder, "CHANGELOG.json"), "utf-8").contains("insertions"));
+        execute("formats", "json", "diffStatInJson", true);
+        CommitsJson json = new Gson().fromJson(FileUtils.readFileToString(new File(outputFolder, "CHANGELOG.json"), "utf-8"), CommitsJson.class);
+        Assert.assertEquals(Integer.valueOf(1), json.getCommits().get(0).getInsertions());
+    }
+
+    @Test
+    public void pagedHtml() throws Exception {
+        execute("formats", "html", "htmlPageSize", 2);
+        String index = FileUtils.readFileToString(new File(outputFolder, "CHANGELOG.html"), "utf-8");
+        for (int page = 1; page <= 3; page++) {
+            Assert.assertTrue(index.contains("<a href=\"CHANGELOG-" + page + ".html\">" + page + "</a>"));
+        }
+        String second = FileUtils.readFileToString(new File(outputFolder, "CHANGELOG-2.html"), "utf-8");
+        Assert.assertTrue(second.contains("JIRA-3 commit 3"));
+        Assert.assertFalse(second.contains("JIRA-5 commit 5"));
+        Assert.assertTrue(second.contains("<a href=\"CHANGELOG-1.html\">Previous</a>"));
+        Assert.assertTrue(second.contains("<a href=\"CHANGELOG-3.html\">Next</a>"));
+        String last = FileUtils.readFileToString(new File(outputFolder, "CHANGELOG-3.html"), "utf-8");
+        Assert.assertTrue(last.contains("JIRA-1 commit 1"));
+        Assert.assertFalse(last.contains("Next"));
+
+        // pages of previous build are removed
+        execute("formats", "html", "htmlPageSize", 3);
+        Assert.assertTrue(new File(outputFolder, "CHANGELOG-2.html").isFile());
+        Assert.assertFalse(new File(outputFolder, "CHANGELOG-3.html").exists());
+
+        // removed page is written again by build with fingerprint
+        execute("formats", "html", "htmlPageSize", 3, "skipUnchanged", true);
+        MavenProject project = execute("formats", "html", "htmlPageSize", 3, "skipUnchanged", true);
+        Assert.assertEquals("1", project.getProperties().getProperty("git.log.metrics.skipped"));
+        FileUtils.deleteQuietly(new File(outputFolder, "CHANGELOG-2.html"));
+        project = execute("formats", "html", "htmlPageSize", 3, "skipUnchanged", true);
+        Assert.assertEquals("2", project.getProperties().getProperty("git.log.metrics.html.pages"));
+        Assert.assertTrue(new File(outputFolder, "CHANGELOG-2.html").isFile());
+    }
+
+    @Test
+    public void commitsGroupedByRelease() throws Exception {
+        Git git = repository.getGit();
+        List<RevCommit> commits = new ArrayList<RevCommit>();
+        for (RevCommit commit : git.log().call()) {
+            commits.add(commit);
+        }
+        git.tag().setName("v1").setObjectId(commits.get(3)).call();
+        git.tag().setName("v2").setObjectId(commits.get(1)).setAnnotated(false).call();
+        // feature from commit 3 merged after v2: released by no tag
+        git.checkout().setCreateBranch(true).setName("feature").setStartPoint(commits.get(2)).call();
+        repository.commit("feature.txt", "feature", "JIRA-7 feature");
+        git.checkout().setName("master").call();
+        git.merge().include(git.getRepository().getRef("feature")).call();
+
+        execute("formats", "txt,json,html", "templateLine", "%s", "groupByRelease", true);
+        String html = FileUtils.readFileToString(new File(outputFolder, "CHANGELOG.html"), "utf-8");
+        Assert.assertTrue(html.contains("<b>Release: Unreleased</b>"));
+        Assert.assertTrue(html.indexOf("<b>Release: Unreleased</b>") < html.indexOf("<b>Release: v2</b>"));
+        Assert.assertTrue(html.indexOf("<b>Release: v2</b>") < html.indexOf("<b>Release: v1</b>"));
+        Assert.assertEquals(html.lastIndexOf("<b>Release: v1</b>"), html.indexOf("<b>Release: v1</b>"));
+        List<String> lines = FileUtils.readLines(new File(outputFolder, "CHANGELOG.txt"), "utf-8");
+        Assert.assertEquals("Release: Unreleased", lines.get(1));
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("Merge branch 'feature'", "JIRA-7 feature", "JIRA-5 commit 5")),
+                new HashSet<String>(lines.subList(2, 5)));
+        Assert.assertEquals(Arrays.asList("Release: v2", "JIRA-4 commit 4", "JIRA-3 commit 3", "Release: v1", "JIRA-2 commit 2", "JIRA-1 commit 1"),
+                lines.subList(5, lines.size()));
+
+        CommitsJson json = new Gson().fromJson(FileUtils.readFileToString(new File(outputFolder, "CHANGELOG.json"), "utf-8"), CommitsJson.class);
+        Assert.assertEquals(3, json.getReleases().size());
+        Assert.assertNull(json.getReleases().get(0).getTag());
+        Assert.assertEquals("v2", json.getReleases().get(1).getTag());
+        Assert.assertEquals(commits.get(1).getName(), json.getReleases().get(1).getHash());
+        Assert.assertEquals(2, json.getReleases().get(2).getCount());
+        Assert.assertEquals("v1", json.getCommits().get(6).getRelease());
+
+        // release sections in each page
+        execute("formats", "html", "groupByRelease", true, "htmlPageSize", 3);
+        Assert.assertTrue(FileUtils.readFileToString(new File(outputFolder, "CHANGELOG-1.html"), "utf-8").contains("<b>Release: Unreleased</b>"));
+        html = FileUtils.readFileToString(new File(outputFolder, "CHANGELOG-2.html"), "utf-8");
+        Assert.assertTrue(html.indexOf("<b>Release: v2</b>") < html.indexOf("<b>Release: v1</b>"));
+        Assert.assertTrue(FileUtils.readFileToString(new File(outputFolder, "CHANGELOG-3.html"), "utf-8").contains("<b>Release: v1</b>"));
+
+        // new tag on old commit changes releases
+        git.tag().setName("v0").setObjectId(commits.get(4)).call();
+        execute("templateLine", "%s", "groupByRelease", true);
+        lines = FileUtils.readLines(new File(outputFolder, "CHANGELOG.txt"), "utf-8");
+        Assert.assertEquals(Arrays.asList("Release: v0", "JIRA-1 commit 1"), lines.subList(lines.size() - 2, lines.size()));
+    }
+
+    @Test
+    public void releasesOfCommitOlderThanParent() throws Exception {
+        Git git = repository.getGit();
+        List<RevCommit> commits = new ArrayList<RevCommit>();
+        for (RevCommit commit : git.log().call()) {
+            commits.add(commit);
+        }
+        // release branch from commit 3 with wrong clock: walk by time reaches commit 3 before its child
+        git.checkout().setCreateBranch(true).setName("release").setStartPoint(commits.get(2)).call();
+        FileUtils.writeStringToFile(new File(repository.getGitDir().getParentFile(), "release.txt"), "release", "utf-8");
+        git.add().addFilepattern("release.txt").call();
+        PersonIdent skewed = new PersonIdent("tester", "tester@mail", commits.get(4).getCommitTime() * 1000L + 30000, 0);
+        RevCommit release = git.commit().setMessage("JIRA-R release").setAuthor(skewed).setCommitter(skewed).call();
+        git.tag().setName("v1").setObjectId(release).call();
+        git.checkout().setName("master").call();
+        git.merge().include(git.getRepository().getRef("release")).setCommit(false).call();
+        repository.commit("merge.txt", "merge", "Merge release");
+
+        execute("templateLine", "%s", "groupByRelease", true, "countCommits", -1);
+        List<String> lines = FileUtils.readLines(new File(outputFolder, "CHANGELOG.txt"), "utf-8");
+        Assert.assertEquals(Arrays.asList("Release: v1", "JIRA-R release", "JIRA-3 commit 3", "JIRA-2 commit 2", "JIRA-1 commit 1"),
+                lines.subList(lines.size() - 5, lines.size()));
+
+        // walk stops at count
+        execute("templateLine", "%s", "groupByRelease", true, "countCommits", 2);
+        lines = FileUtils.readLines(new File(outputFolder, "CHANGELOG.txt"), "utf-8");
+        Assert.assertEquals(Arrays.asList("Release: Unreleased", "Merge release", "JIRA-5 commit 5"), lines.subList(1, lines.size()));
+    }
+
+    @Test
+    public void firstParentAndNoMerges() throws Exception {
+        Git git = repository.getGit();
+        List<RevCommit> commits = new ArrayList<RevCommit>();
+        for (RevCommit commit : git.log().call()) {
+            commits.add(commit);
+        }
+        // pull request from commit 3 merged to trunk
+        git.checkout().setCreateBranch(true).setName("feature").setStartPoint(commits.get(2)).call();
+        repository.commit("feature.txt", "feature 1", "JIRA-F1 feature 1");
+        repository.commit("feature.txt", "feature 2", "JIRA-F2 feature 2");
+        git.checkout().setName("master").call();
+        git.merge().include(git.getRepository().getRef("feature")).setCommit(false).call();
+        repository.commit("merge.txt", "merge", "Merge feature");
+        repository.commit("file.txt", "content 6", "JIRA-6 commit 6");
+        File txt = new File(outputFolder, "CHANGELOG.txt");
+
+        execute("templateLine", "%s", "countCommits", -1);
+        Assert.assertEquals(10, FileUtils.readLines(txt, "utf-8").size());
+
+        // side branch is not walked
+        execute("templateLine", "%s", "countCommits", -1, "firstParent", true);
+        List<String> lines = FileUtils.readLines(txt, "utf-8");
+        Assert.assertEquals(Arrays.asList("JIRA-6 commit 6", "Merge feature", "JIRA-5 commit 5", "JIRA-4 commit 4",
+                "JIRA-3 commit 3", "JIRA-2 commit 2", "JIRA-1 commit 1"), lines.subList(1, lines.size()));
+
+        // count of commits without merges
+        execute("templateLine", "%s", "countCommits", 3, "noMerges", true);
+        lines = FileUtils.readLines(txt, "utf-8");
+        Assert.assertEquals(Arrays.asList("JIRA-6 commit 6", "JIRA-F2 feature 2", "JIRA-F1 feature 1"), lines.subList(1, lines.size()));
+
+        execute("templateLine", "%s", "firstParent", true, "noMerges", true, "sinceRef", commits.get(2).getName());
+        lines = FileUtils.readLines(txt, "utf-8");
+        Assert.assertEquals(Arrays.asList("JIRA-6 commit 6", "JIRA-5 commit 5", "JIRA-4 commit 4"), lines.subList(1, lines.size()));
+
+        // since is side branch with wrong clock: chain stops at its ancestor
+        git.checkout().setCreateBranch(true).setName("skewed").setStartPoint(commits.get(3)).call();
+        FileUtils.writeStringToFile(new File(repository.getGitDir().getParentFile(), "skewed.txt"), "skewed", "utf-8");
+        git.add().addFilepattern("skewed.txt").call();
+        PersonIdent skewed = new PersonIdent("tester", "tester@mail", commits.get(4).getCommitTime() * 1000L - 60000, 0);
+        RevCommit since = git.commit().setMessage("JIRA-S skewed").setAuthor(skewed).setCommitter(skewed).call();
+        git.checkout().setName("master").call();
+        execute("templateLine", "%s", "firstParent", true, "countCommits", -1, "sinceRef", since.getName());
+        lines = FileUtils.readLines(txt, "utf-8");
+        Assert.assertEquals(Arrays.asList("JIRA-6 commit 6", "Merge feature", "JIRA-5 commit 5", "JIRA-4 commit 4",
+                "JIRA-3 commit 3"), lines.subList(1, lines.size()));
+
+        // release by tags of the chain
+        git.tag().setName("v1").setObjectId(commits.get(1)).call();
+        execute("templateLine", "%s", "firstParent", true, "groupByRelease", true);
+        lines = FileUtils.readLines(txt, "utf-8");
+        Assert.assertEquals(Arrays.asList("Release: Unreleased", "JIRA-6 commit 6", "Merge feature", "JIRA-5 commit 5",
+                "Release: v1", "JIRA-4 commit 4", "JIRA-3 commit 3", "JIRA-2 commit 2", "JIRA-1 commit 1"), lines.subList(1, lines.size()));
+    }
+
+    @Test
+    public void commitIndexSameAsWalkAfterMergeOfOldBranch() throws Exception {
+        File txt = new File(outputFolder, "CHANGELOG.txt");
+        File indexFolder = new File(folder.getRoot(), "index");
+        Object[] indexParams = {"skipUnchanged", false, "useCommitIndex", true, "indexFolder", indexFolder.getAbsolutePath()};
+        execute(indexParams, "countCommits", -1);
+
+        // branch with commit older than indexed commits, merged after them
+        Git git = repository.getGit();
+        List<RevCommit> commits = new ArrayList<RevCommit>();
+        for (RevCommit commit : git.log().call()) {
+            commits.add(commit);
+        }
+        git.checkout().setCreateBranch(true).setName("old").setStartPoint(commits.get(3)).call();
+        FileUtils.writeStringToFile(new File(repository.getGitDir().getParentFile(), "old.txt"), "old", "utf-8");
+        git.add().addFilepattern("old.txt").call();
+        PersonIdent old = new PersonIdent("tester", "tester@mail", commits.get(3).getCommitTime() * 1000L + 30000, 0);
+        git.commit().setMessage("JIRA-O old").setAuthor(old).setCommitter(old).call();
+        git.checkout().setName("master").call();
+        git.merge().include(git.getRepository().getRef("old")).setCommit(false).call();
+        repository.commit("merge.txt", "merge", "Merge old");
+
+        for (int count : new int[]{-1, 4}) {
+            execute(indexParams, "countCommits", count);
+            String fromIndex = FileUtils.readFileToString(txt, "utf-8");
+            execute("skipUnchanged", false, "countCommits", count);
+            Assert.assertEquals(FileUtils.readFileToString(txt, "utf-8"), fromIndex);
+        }
+        Assert.assertFalse(FileUtils.readFileToString(txt, "utf-8").contains("JIRA-O old"));
+    }
+
+    /** Execute plugin with params and additional params */
+    private MavenProject execute(Object[] params, Object... other) throws Exception {
+        Object[] all = new Object[params.length + other.length];
+        System.arraycopy(params, 0, all, 0, params.length);
+        System.arraycopy(other, 0, all, params.length, other.length);
+        return execute(all);
+    }
+
+    /** Execute plugin with params (name, value, name, value...) */
+    private MavenProject execute(Object... params) throws Exception {
+        MavenProject project = new MavenProject();
+        GitLogGenerator generator = repository.createGenerator(project, outputFolder);
+        TestGitRepository.set(generator, "cacheFolder", cacheFolder.getAbsolutePath());
+        TestGitRepository.set(generator, "diffStatCacheFolder", cacheFolder.getAbsolutePath());
+        for (int i = 0; i < params.length; i += 2) {
+            TestGitRepository.set(generator, (String) params[i], params[i + 1]);
+        }
+        generator.execute();
+        return project;
+    }
+}
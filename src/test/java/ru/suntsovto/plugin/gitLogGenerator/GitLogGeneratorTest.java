@@ -1,18 +1,29 @@
 package ru.suntsovto.plugin.gitLogGenerator;
 
+import java.io.File;
+import java.io.InputStream;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
+import java.util.regex.Pattern;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.velocity.VelocityContext;
 import org.junit.Assert;
 import org.junit.Test;
 
 public class GitLogGeneratorTest {
-    
+
+    /** User templates are loaded relative to current folder */
+    private static final File TEMPLATE_FOLDER = new File("target/test-templates");
+
     @Test
     public void createTxtTest(){
-        GitLogGenerator gen = new GitLogGenerator();
+        ChangelogGenerator gen = new ChangelogGenerator(new GitLogConfig());
 
         List<CommitDto> list = new ArrayList<CommitDto>();
         list.add(createCommitDto("JIRA-123 hello"));
@@ -30,7 +41,7 @@ public class GitLogGeneratorTest {
 
     @Test
     public void createJsonTest(){
-        GitLogGenerator gen = new GitLogGenerator();
+        ChangelogGenerator gen = new ChangelogGenerator(new GitLogConfig());
 
         List<CommitDto> commitDtoList = new ArrayList<CommitDto>();
         commitDtoList.add(createCommitDto("JIRA-123 hello"));
@@ -45,7 +56,7 @@ public class GitLogGeneratorTest {
     
     @Test
     public void createHtmlTest() throws Exception {
-        GitLogGenerator gen = new GitLogGenerator();
+        ChangelogGenerator gen = new ChangelogGenerator(new GitLogConfig());
 
         List<CommitDto> commitDtoList = new ArrayList<CommitDto>();
         commitDtoList.add(createCommitDto("JIRA-123 hello"));
@@ -58,6 +69,149 @@ public class GitLogGeneratorTest {
         Assert.assertTrue(sb.contains("<td>jiraUrl/JIRA-123 hello2</td>"));
     }
     
+    @Test
+    public void htmlStreamSameAsList() throws Exception {
+        List<CommitDto> commits = new ArrayList<CommitDto>();
+        commits.add(createCommitDto("JIRA-123 hello"));
+        commits.add(createCommitDto("JIRA-123 hello2"));
+        Set<String> currentBranches = Collections.singleton("master");
+
+        // internal template reads commits while rendered
+        String streamed = renderHtml(new HtmlRenderer(VelocityTemplates.getInternal("templateHtml.vm"), null, false),
+                new CommitStream(commits.iterator()));
+
+        // the same template with list, as templates before stream
+        InputStream is = getClass().getClassLoader().getResourceAsStream("templateHtml.vm");
+        String text;
+        try {
+            text = IOUtils.toString(is, "utf-8").replace("$!commitStream.hasNext()", "$!commits.size() != 0")
+                    .replace("$!commitStream", "$!commits");
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+        File listTemplate = new File(TEMPLATE_FOLDER, "list.vm");
+        FileUtils.writeStringToFile(listTemplate, text, "utf-8");
+        Assert.assertTrue(HtmlRenderer.usesCommitList(text));
+        String listed = renderHtml(new HtmlRenderer(VelocityTemplates.getFile(listTemplate.getPath()), null, true),
+                new CommitStream(commits.iterator()));
+
+        Assert.assertTrue(streamed.contains("JIRA-123 hello2"));
+        Assert.assertEquals(listed, streamed);
+    }
+
+    @Test
+    public void customTemplateGetsCommitList() throws Exception {
+        File template = new File(TEMPLATE_FOLDER, "custom.vm");
+        FileUtils.writeStringToFile(template, "#if (!$commits.isEmpty())$commits.size() first: $commits.get(0).s\n#end"
+                + "#foreach ($commit in $commits)$commit.s;#end|#foreach ($commit in ${commits})$commit.h;#end", "utf-8");
+        String text = FileUtils.readFileToString(template, "utf-8");
+        Assert.assertFalse(HtmlRenderer.usesCommitList("#foreach ($commit in $commitStream)$commit.s#end"));
+
+        List<CommitDto> commits = new ArrayList<CommitDto>();
+        commits.add(createCommitDto("JIRA-1 first"));
+        commits.add(createCommitDto("JIRA-2 second"));
+        String html = renderHtml(new HtmlRenderer(VelocityTemplates.getFile(template.getPath()), null,
+                HtmlRenderer.usesCommitList(text)), new CommitStream(commits.iterator()));
+        Assert.assertEquals("2 first: JIRA-1 first\nJIRA-1 first;JIRA-2 second;|123123;123123;", html);
+    }
+
+    private static String renderHtml(HtmlRenderer renderer, CommitStream commits) throws Exception {
+        StringWriter writer = new StringWriter();
+        renderer.render(Collections.singleton("master"), commits, writer);
+        return writer.toString();
+    }
+
+    @Test
+    public void lineTemplateTest(){
+        CommitDto dto = createCommitDto("JIRA-1 cost $10 in C:\\temp");
+        StringBuilder sb = new StringBuilder();
+        LineTemplate.compile("%h|%s|%sWithUrl|%%s|%x").appendTo(sb, dto);
+        Assert.assertEquals("123123|JIRA-1 cost $10 in C:\\temp|jiraUrl/JIRA-1 cost $10 in C:\\temp|%JIRA-1 cost $10 in C:\\temp|%x", sb.toString());
+    }
+
+    @Test
+    public void velocityTemplateCachedTest() throws Exception {
+        Assert.assertSame(VelocityTemplates.getInternal("templateHtml.vm"), VelocityTemplates.getInternal("templateHtml.vm"));
+        Assert.assertNotSame(VelocityTemplates.getInternal("templateHtml.vm"), VelocityTemplates.getInternal("templateHtmlTable.vm"));
+
+        File file = new File(TEMPLATE_FOLDER, "cached.vm");
+        FileUtils.writeStringToFile(file, "first", "utf-8");
+        Assert.assertTrue(file.setLastModified(1600000000000L));
+        Assert.assertSame(VelocityTemplates.getFile(file.getPath()), VelocityTemplates.getFile(file.getPath()));
+
+        // changed in the same modified time
+        FileUtils.writeStringToFile(file, "second", "utf-8");
+        Assert.assertTrue(file.setLastModified(1600000000000L));
+        StringWriter writer = new StringWriter();
+        VelocityTemplates.getFile(file.getPath()).merge(new VelocityContext(), writer);
+        Assert.assertEquals("second", writer.toString());
+    }
+
+    @Test
+    public void internalTemplateNotOverriddenByWorkingFolder() throws Exception {
+        File own = new File("templateHtmlIndex.vm");
+        Assert.assertFalse(own.exists());
+        try {
+            FileUtils.writeStringToFile(own, "own index", "utf-8");
+            StringWriter writer = new StringWriter();
+            VelocityTemplates.getInternal("templateHtmlIndex.vm").merge(new VelocityContext(), writer);
+            Assert.assertFalse(writer.toString().contains("own index"));
+
+            File user = new File(TEMPLATE_FOLDER, "absolute.vm").getAbsoluteFile();
+            FileUtils.writeStringToFile(user, "user #parse('templateHtmlIndex.vm')", "utf-8");
+            writer = new StringWriter();
+            VelocityTemplates.getFile(user.getPath()).merge(new VelocityContext(), writer);
+            Assert.assertEquals("user own index", writer.toString());
+        } finally {
+            FileUtils.deleteQuietly(own);
+        }
+    }
+
+    @Test
+    public void issueLinkerTest(){
+        IssueLinker linker = new IssueLinker(Pattern.compile("([A-Z]+-\\d+)"), "http://jira/browse");
+
+        CommitDto dto = new CommitDto();
+        linker.fill(dto, "JIRA-1 and JIRA-12 (again JIRA-1)");
+        Assert.assertEquals("http://jira/browse/JIRA-1", dto.getIssueUrl());
+        Assert.assertEquals("<a href=\"http://jira/browse/JIRA-1\">JIRA-1</a> and <a href=\"http://jira/browse/JIRA-12\">JIRA-12</a>"
+                + " (again <a href=\"http://jira/browse/JIRA-1\">JIRA-1</a>)", dto.getSWithUrl());
+
+        linker.fill(dto, "no issue $1");
+        Assert.assertEquals("", dto.getIssueUrl());
+        Assert.assertEquals("no issue $1", dto.getSWithUrl());
+        Assert.assertEquals("http://jira/browse/JIRA-12", linker.getIssueUrl("fix JIRA-12"));
+    }
+
+    @Test
+    public void usedTokensTest(){
+        Assert.assertEquals(EnumSet.of(Token.h, Token.s), LineTemplate.compile("%h %s").getTokens());
+        Assert.assertEquals(EnumSet.of(Token.sWithUrl), LineTemplate.compile("%sWithUrl").getTokens());
+        Assert.assertEquals(EnumSet.of(Token.H, Token.ad, Token.sWithUrl),
+                Token.usedInVelocity("$!commit.ad $commit.hash ${commit.getSWithUrl()} $!commits.size()"));
+        Assert.assertEquals(EnumSet.of(Token.h, Token.release),
+                Token.usedInVelocity("#foreach ($!c in $!commitStream)$c.h #if ($c.release)$!{c.release}#end#end"));
+
+        // commit used not by plain property: all fields
+        Set<Token> all = EnumSet.allOf(Token.class);
+        Assert.assertEquals(all, Token.usedInVelocity("#macro(row $c)$c.h#end #foreach ($commit in $commits)#row($commit)#end"));
+        Assert.assertEquals(all, Token.usedInVelocity("#foreach ($commit in $commits)$commit.get(\"s\")#end"));
+        Assert.assertEquals(all, Token.usedInVelocity("#foreach ($c in $commits)${c.getMessage()}#end"));
+        Assert.assertEquals(all, Token.usedInVelocity("#foreach ($c in $commits)#set ($last = $c)#end"));
+    }
+
+    @Test
+    public void internalTemplatesUsePlainProperties() throws Exception {
+        for (String name : new String[]{"templateHtml.vm", "templateHtmlTable.vm"}) {
+            InputStream is = getClass().getClassLoader().getResourceAsStream(name);
+            try {
+                Assert.assertFalse(name, Token.usedInVelocity(IOUtils.toString(is, "utf-8")).containsAll(Token.DIFF_STAT));
+            } finally {
+                IOUtils.closeQuietly(is);
+            }
+        }
+    }
+
     private CommitDto createCommitDto(String message) {
         CommitDto commitDto = new CommitDto();
         commitDto.setHash("123123123123123123");
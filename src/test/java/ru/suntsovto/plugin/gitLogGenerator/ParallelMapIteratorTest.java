@@ -0,0 +1,75 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ParallelMapIteratorTest {
+
+    private final ExecutorService executor = ParallelMapIterator.newExecutor(4);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void orderIsKept() {
+        List<Integer> source = new ArrayList<Integer>();
+        for (int i = 0; i < 10000; i++) {
+            source.add(i);
+        }
+        final Random random = new Random();
+        ParallelMapIterator<Integer, String> iterator = new ParallelMapIterator<Integer, String>(source.iterator(),
+                new ParallelMapIterator.Mapper<Integer, String>() {
+                    @Override
+                    public String map(Integer value) throws Exception {
+                        if (random.nextInt(1000) == 0) {
+                            Thread.sleep(1);
+                        }
+                        return "commit " + value;
+                    }
+                }, executor, 64, 8);
+
+        List<String> result = new ArrayList<String>();
+        while (iterator.hasNext()) {
+            result.add(iterator.next());
+        }
+        Assert.assertEquals(source.size(), result.size());
+        for (int i = 0; i < source.size(); i++) {
+            Assert.assertEquals("commit " + i, result.get(i));
+        }
+    }
+
+    @Test
+    public void mapperErrorIsThrown() {
+        List<Integer> source = new ArrayList<Integer>();
+        for (int i = 0; i < 100; i++) {
+            source.add(i);
+        }
+        ParallelMapIterator<Integer, Integer> iterator = new ParallelMapIterator<Integer, Integer>(source.iterator(),
+                new ParallelMapIterator.Mapper<Integer, Integer>() {
+                    @Override
+                    public Integer map(Integer value) {
+                        if (value == 50) {
+                            throw new IllegalArgumentException("bad commit");
+                        }
+                        return value;
+                    }
+                }, executor, 10, 2);
+
+        try {
+            while (iterator.hasNext()) {
+                iterator.next();
+            }
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals("bad commit", e.getCause().getMessage());
+        }
+    }
+}
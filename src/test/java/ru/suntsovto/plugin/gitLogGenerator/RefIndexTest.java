@@ -0,0 +1,60 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RefIndexTest {
+    private static final String HEAD = "1111111111111111111111111111111111111111";
+    private static final String OTHER = "2222222222222222222222222222222222222222";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void packedAndLooseRefsFromNamespaces() throws Exception {
+        File gitDir = folder.newFolder(".git");
+        FileUtils.writeStringToFile(new File(gitDir, "packed-refs"), "# pack-refs with: peeled fully-peeled \n"
+                + HEAD + " refs/heads/main\n"
+                + HEAD + " refs/pull/1/head\n"
+                + OTHER + " refs/tags/v1\n"
+                + "^" + HEAD + "\n"
+                + HEAD + " refs/heads/moved\n", "utf-8");
+        FileUtils.writeStringToFile(new File(gitDir, "refs/remotes/origin/feature/x"), HEAD + "\n", "utf-8");
+        FileUtils.writeStringToFile(new File(gitDir, "refs/remotes/origin/HEAD"), "ref: refs/remotes/origin/main\n", "utf-8");
+        FileUtils.writeStringToFile(new File(gitDir, "refs/heads/moved"), OTHER + "\n", "utf-8");
+
+        RefIndex index = RefIndex.load(gitDir, Arrays.asList("refs/heads", "refs/remotes/", "refs/tags"));
+
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("refs/heads/main", "refs/remotes/origin/feature/x")),
+                new HashSet<String>(index.getNames(ObjectId.fromString(HEAD))));
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("refs/tags/v1", "refs/heads/moved")),
+                new HashSet<String>(index.getNames(ObjectId.fromString(OTHER))));
+    }
+
+    @Test
+    public void peeledTagsFromPackedRefs() throws Exception {
+        File gitDir = folder.newFolder(".git");
+        FileUtils.writeStringToFile(new File(gitDir, "packed-refs"), "# pack-refs with: peeled fully-peeled \n"
+                + OTHER + " refs/tags/annotated\n"
+                + "^" + HEAD + "\n"
+                + HEAD + " refs/tags/light\n"
+                + HEAD + " refs/heads/main\n", "utf-8");
+
+        // all tags peeled in packed-refs, objects are not read
+        Map<ObjectId, List<String>> commits = RefIndex.load(gitDir, Arrays.asList("refs/tags")).getPeeledCommits(null);
+
+        Assert.assertEquals(1, commits.size());
+        Assert.assertEquals(new HashSet<String>(Arrays.asList("refs/tags/annotated", "refs/tags/light")),
+                new HashSet<String>(commits.get(ObjectId.fromString(HEAD))));
+    }
+}
@@ -0,0 +1,97 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.io.File;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class RepositoryPoolTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TestGitRepository repository;
+
+    @Before
+    public void setUp() throws Exception {
+        repository = new TestGitRepository(folder.newFolder("repo"));
+        repository.commit("module/file.txt", "content 1", "JIRA-1 commit 1");
+    }
+
+    @Test
+    public void gitDirFoundFromModuleFolder() throws Exception {
+        File gitDir = repository.getGitDir().getCanonicalFile();
+        File module = new File(repository.getGitDir().getParentFile(), "module");
+        Assert.assertEquals(gitDir, RepositoryPool.findGitDir(module).getCanonicalFile());
+
+        // file .git of submodule or worktree
+        File linked = folder.newFolder("linked");
+        FileUtils.writeStringToFile(new File(linked, ".git"), "gitdir: " + gitDir.getAbsolutePath() + "\n", "utf-8");
+        Assert.assertEquals(gitDir, RepositoryPool.findGitDir(linked).getCanonicalFile());
+
+        // plugin without gitFolder param searches from module folder
+        MavenProject project = new MavenProject();
+        project.setFile(new File(module, "pom.xml"));
+        File outputFolder = folder.newFolder("output");
+        GitLogGenerator generator = repository.createGenerator(project, outputFolder);
+        TestGitRepository.set(generator, "gitFolder", null);
+        TestGitRepository.set(generator, "cacheFolder", null);
+        TestGitRepository.set(generator, "silent", false);
+        generator.execute();
+        Assert.assertTrue(FileUtils.readFileToString(new File(outputFolder, "CHANGELOG.txt"), "utf-8").contains("JIRA-1 commit 1"));
+    }
+
+    @Test
+    public void repositorySharedUntilReleased() throws Exception {
+        int size = RepositoryPool.size();
+        Repository first = RepositoryPool.acquire(repository.getGitDir());
+        Repository second = RepositoryPool.acquire(new File(repository.getGitDir().getParentFile(), ".git/../.git"));
+        Assert.assertSame(first, second);
+        Assert.assertEquals(size + 1, RepositoryPool.size());
+
+        // used by other module - not closed
+        RepositoryPool.release(first, 0);
+        Assert.assertEquals(size + 1, RepositoryPool.size());
+        RepositoryPool.release(second, 0);
+        Assert.assertEquals(size, RepositoryPool.size());
+    }
+
+    @Test
+    public void idleRepositoryClosedWithoutAcquire() throws Exception {
+        int size = RepositoryPool.size();
+        Repository repo = RepositoryPool.acquire(repository.getGitDir());
+        RepositoryPool.release(repo, 100);
+        Assert.assertEquals(size + 1, RepositoryPool.size());
+
+        for (int i = 0; i < 100 && RepositoryPool.size() > size; i++) {
+            Thread.sleep(50);
+        }
+        Assert.assertEquals(size, RepositoryPool.size());
+    }
+
+    @Test
+    public void reopenedAfterPackRemoved() throws Exception {
+        repository.getGit().gc().call();
+        Repository first = RepositoryPool.acquire(repository.getGitDir());
+        RepositoryPool.release(first, 60000);
+
+        // kept for next build
+        Repository second = RepositoryPool.acquire(repository.getGitDir());
+        Assert.assertSame(first, second);
+        RepositoryPool.release(second, 60000);
+
+        // gc replaced pack: new instance without deleted files
+        repository.commit("module/file.txt", "content 2", "JIRA-2 commit 2");
+        repository.getGit().gc().call();
+        Repository third = RepositoryPool.acquire(repository.getGitDir());
+        Assert.assertNotSame(first, third);
+        Assert.assertNotNull(third.resolve("HEAD"));
+        RepositoryPool.release(third, 0);
+    }
+}
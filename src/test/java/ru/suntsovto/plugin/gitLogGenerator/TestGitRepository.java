@@ -0,0 +1,67 @@
+package ru.suntsovto.plugin.gitLogGenerator;
+
+import java.io.File;
+import java.lang.reflect.Field;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+/** Git repository in folder for tests and plugin configured to it */
+public class TestGitRepository {
+    private final Git git;
+    private final File workTree;
+    private long time;
+
+    public TestGitRepository(File workTree) throws Exception {
+        this(workTree, 1600000000000L);
+    }
+
+    /** @param time time of first commit minus one minute */
+    public TestGitRepository(File workTree, long time) throws Exception {
+        this.workTree = workTree;
+        this.time = time;
+        this.git = Git.init().setDirectory(workTree).call();
+        git.getRepository().getConfig().setString("remote", "origin", "url", "https://gitlab/group/project");
+        git.getRepository().getConfig().save();
+    }
+
+    public Git getGit() {
+        return git;
+    }
+
+    public File getGitDir() {
+        return git.getRepository().getDirectory();
+    }
+
+    /** Commit file with content, each commit one minute after previous */
+    public RevCommit commit(String path, String content, String message) throws Exception {
+        FileUtils.writeStringToFile(new File(workTree, path), content, "utf-8");
+        git.add().addFilepattern(path).call();
+        time += 60000;
+        PersonIdent ident = new PersonIdent("tester", "tester@mail", time, 0);
+        return git.commit().setMessage(message).setAuthor(ident).setCommitter(ident).call();
+    }
+
+    /** Plugin with default param values and git folder of this repository */
+    public GitLogGenerator createGenerator(MavenProject project, File outputFolder) throws Exception {
+        GitLogGenerator generator = new GitLogGenerator();
+        set(generator, "project", project);
+        set(generator, "gitFolder", getGitDir().getAbsolutePath());
+        set(generator, "outputFolder", outputFolder.getAbsolutePath());
+        set(generator, "outputFileName", "CHANGELOG");
+        set(generator, "formats", "txt");
+        set(generator, "countCommits", 10);
+        set(generator, "templateLine", "%ad %h %an %s");
+        return generator;
+    }
+
+    /** Set plugin param as maven does */
+    public static void set(GitLogGenerator generator, String name, Object value) throws Exception {
+        Field field = GitLogGenerator.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(generator, value);
+    }
+}